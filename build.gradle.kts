@@ -1,6 +1,7 @@
 plugins {
 	id("com.gradleup.shadow") version "8.3.5"
 	id("qupath-conventions")
+	id("me.champeau.jmh") version "0.7.2"
 	`maven-publish`
 }
 
@@ -26,6 +27,28 @@ dependencies {
 	testImplementation(libs.bundles.qupath)
 	testImplementation(libs.junit)
 
+	// For benchmarking
+	jmh(libs.bundles.qupath)
+	jmh(libs.bundles.logging)
+	jmh(libs.qupath.fxtras)
+	jmh(libs.guava)
+
+}
+
+// Run benchmarks with "./gradlew jmh". Results are written to build/results/jmh/results.json
+jmh {
+	benchmarkMode = listOf("thrpt")
+	// The gc profiler reports the allocation rate of each benchmark
+	profilers = listOf("gc")
+	fork = 1
+	warmupIterations = 3
+	iterations = 5
+	jvmArgs = listOf("-Xmx8G", "-Djava.awt.headless=true")
+	resultFormat = "JSON"
+	// Use for example "./gradlew jmh -Pjmh.includes=ImageEncoding" to run a subset of the benchmarks
+	if (project.hasProperty("jmh.includes")) {
+		includes = listOf(project.property("jmh.includes").toString())
+	}
 }
 
 publishing {
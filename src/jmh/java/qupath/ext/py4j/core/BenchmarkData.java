@@ -0,0 +1,136 @@
+package qupath.ext.py4j.core;
+
+import qupath.lib.images.ImageData;
+import qupath.lib.images.servers.ImageServer;
+import qupath.lib.images.servers.WrappedBufferedImageServer;
+import qupath.lib.measurements.MeasurementList;
+import qupath.lib.objects.PathObject;
+import qupath.lib.objects.PathObjects;
+import qupath.lib.objects.classes.PathClass;
+import qupath.lib.regions.ImagePlane;
+import qupath.lib.roi.ROIs;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Create synthetic objects and images to use in benchmarks. All data is generated from a fixed seed,
+ * so that results can be compared between runs.
+ */
+class BenchmarkData {
+
+    private static final long SEED = 42;
+    private static final int CELL_VERTICES = 12;
+    private static final double CELL_RADIUS = 8;
+    private static final List<PathClass> CLASSIFICATIONS = List.of(
+            PathClass.fromString("Tumor"),
+            PathClass.fromString("Stroma"),
+            PathClass.fromString("Immune cells")
+    );
+
+    private BenchmarkData() {
+        throw new AssertionError("This class is not instantiable.");
+    }
+
+    /**
+     * Create detections with polygonal cell-like ROIs laid out on a grid, a classification,
+     * and random measurements.
+     *
+     * @param nDetections  the number of detections to create
+     * @param nMeasurements  the number of measurements of each detection
+     * @return a list of detections
+     */
+    public static List<PathObject> createDetections(int nDetections, int nMeasurements) {
+        Random random = new Random(SEED);
+        int nColumns = (int) Math.ceil(Math.sqrt(nDetections));
+        List<String> measurementNames = getMeasurementNames(nMeasurements);
+
+        List<PathObject> detections = new ArrayList<>(nDetections);
+        for (int i = 0; i < nDetections; i++) {
+            double centerX = (i % nColumns) * CELL_RADIUS * 3;
+            double centerY = (i / nColumns) * CELL_RADIUS * 3;
+
+            double[] x = new double[CELL_VERTICES];
+            double[] y = new double[CELL_VERTICES];
+            for (int j = 0; j < CELL_VERTICES; j++) {
+                double angle = 2 * Math.PI * j / CELL_VERTICES;
+                double radius = CELL_RADIUS * (0.8 + 0.4 * random.nextDouble());
+                x[j] = centerX + radius * Math.cos(angle);
+                y[j] = centerY + radius * Math.sin(angle);
+            }
+
+            PathObject detection = PathObjects.createDetectionObject(
+                    ROIs.createPolygonROI(x, y, ImagePlane.getDefaultPlane()),
+                    CLASSIFICATIONS.get(random.nextInt(CLASSIFICATIONS.size()))
+            );
+            try (MeasurementList measurementList = detection.getMeasurementList()) {
+                for (String name: measurementNames) {
+                    measurementList.put(name, random.nextDouble() * 100);
+                }
+            }
+            detections.add(detection);
+        }
+        return detections;
+    }
+
+    /**
+     * Get the names of the measurements created by {@link #createDetections(int, int)}.
+     *
+     * @param nMeasurements  the number of measurements of each detection
+     * @return the names of the measurements
+     */
+    public static List<String> getMeasurementNames(int nMeasurements) {
+        List<String> names = new ArrayList<>(nMeasurements);
+        for (int i = 0; i < nMeasurements; i++) {
+            names.add("Measurement " + i);
+        }
+        return names;
+    }
+
+    /**
+     * Create an image whose hierarchy contains the provided objects.
+     *
+     * @param pathObjects  the objects to add to the hierarchy
+     * @return an image containing the provided objects
+     */
+    public static ImageData<BufferedImage> createImageData(List<PathObject> pathObjects) {
+        ImageData<BufferedImage> imageData = new ImageData<>(createImageServer("rgb", 1024));
+        imageData.getHierarchy().addObjects(pathObjects);
+        return imageData;
+    }
+
+    /**
+     * Create an image server backed by a random image held in memory.
+     *
+     * @param imageType  "rgb" for an 8-bit RGB image, or "uint16" for a 16-bit single channel image
+     * @param size  the width and height of the image
+     * @return an image server containing random pixels
+     * @throws IllegalArgumentException if the image type is not supported
+     */
+    public static ImageServer<BufferedImage> createImageServer(String imageType, int size) {
+        BufferedImage image = switch (imageType) {
+            case "rgb" -> new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+            case "uint16" -> new BufferedImage(size, size, BufferedImage.TYPE_USHORT_GRAY);
+            default -> throw new IllegalArgumentException(String.format("Unknown image type %s", imageType));
+        };
+
+        // Smooth random values, so that the image compresses like a real one would (and not like noise or a constant)
+        Random random = new Random(SEED);
+        WritableRaster raster = image.getRaster();
+        int maxValue = imageType.equals("rgb") ? 255 : 65535;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                for (int b = 0; b < raster.getNumBands(); b++) {
+                    double value = (Math.sin(x / 37.0 + b) * Math.cos(y / 23.0) + 1) / 2 * maxValue * 0.9
+                            + random.nextDouble() * maxValue * 0.1;
+                    raster.setSample(x, y, b, (int) value);
+                }
+            }
+        }
+
+        return new WrappedBufferedImageServer(imageType + "-" + size, image);
+    }
+}
@@ -0,0 +1,42 @@
+package qupath.ext.py4j.core;
+
+import qupath.lib.images.servers.ImageServer;
+import qupath.lib.objects.PathObject;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+/**
+ * An entry point giving clients access to synthetic data, in addition to all functions of {@link QuPathEntryPoint}.
+ * It must be public so that Py4J can call its methods.
+ */
+public class BenchmarkEntryPoint extends QuPathEntryPoint {
+
+    private final ImageServer<BufferedImage> server;
+    private final List<PathObject> detections;
+
+    /**
+     * Create the entry point.
+     *
+     * @param server  the image returned by {@link #getBenchmarkServer()}
+     * @param detections  the objects returned by {@link #getBenchmarkDetections()}
+     */
+    public BenchmarkEntryPoint(ImageServer<BufferedImage> server, List<PathObject> detections) {
+        this.server = server;
+        this.detections = detections;
+    }
+
+    /**
+     * @return the synthetic image of this benchmark
+     */
+    public ImageServer<BufferedImage> getBenchmarkServer() {
+        return server;
+    }
+
+    /**
+     * @return the synthetic detections of this benchmark
+     */
+    public List<PathObject> getBenchmarkDetections() {
+        return detections;
+    }
+}
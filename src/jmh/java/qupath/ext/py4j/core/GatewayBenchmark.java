@@ -0,0 +1,232 @@
+package qupath.ext.py4j.core;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark calls made through a gateway started by a {@link GatewayManager} on the local host,
+ * as seen by a client: socket round trips, Py4J marshalling, and proxy objects.
+ * <p>
+ * Each benchmark thread uses its own connection. Besides the throughput of each workload, the
+ * "calls" and "megabytes" secondary results give the number of Py4J calls and the number of
+ * megabytes received per second.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(1)
+public class GatewayBenchmark {
+
+    private static final String GATEWAY_NAME = "benchmark";
+    private static final int IMAGE_SIZE = 512;
+    private static final int N_DETECTIONS = 10000;
+    private static final int MEASUREMENTS_PER_DETECTION = 20;
+    private static final long IMAGE_CACHE_SIZE = 64 * 1024 * 1024;
+    private final String token = UUID.randomUUID().toString();
+    private final GatewayManager gatewayManager = new GatewayManager();
+    private int port;
+
+    /**
+     * The number of calls and of megabytes received by a thread, reported as rates by JMH.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Transfer {
+
+        public long calls;
+        public double megabytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            calls = 0;
+            megabytes = 0;
+        }
+
+        private String call(Py4JClient client, String targetId, String method, String... arguments) throws IOException {
+            String answer = client.call(targetId, method, arguments);
+            calls++;
+            return answer;
+        }
+
+        private void received(long bytes) {
+            megabytes += bytes / (1024d * 1024d);
+        }
+    }
+
+    /**
+     * A connection to the gateway, and the IDs of the synthetic data on the Java side.
+     */
+    @State(Scope.Thread)
+    public static class Connection {
+
+        private Py4JClient client;
+        private String serverId;
+        private String detectionsId;
+        private String measurementNamesId;
+
+        @Setup(Level.Trial)
+        public void connect(GatewayBenchmark benchmark) throws IOException {
+            client = new Py4JClient(benchmark.port, benchmark.token);
+
+            serverId = Py4JClient.toObjectId(client.call(Py4JClient.ENTRY_POINT, "getBenchmarkServer"));
+            detectionsId = Py4JClient.toObjectId(client.call(Py4JClient.ENTRY_POINT, "getBenchmarkDetections"));
+            measurementNamesId = Py4JClient.toObjectId(client.call(
+                    Py4JClient.ENTRY_POINT,
+                    "getMeasurementNames",
+                    Py4JClient.reference(detectionsId)
+            ));
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws IOException {
+            client.close();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void startGateway() throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            port = serverSocket.getLocalPort();
+        }
+        // The cache is disabled by default, but enabled here so that image reads measure the transfer of bytes
+        QuPathEntryPoint.setImageCacheSize(IMAGE_CACHE_SIZE);
+
+        gatewayManager.start(
+                GATEWAY_NAME,
+                port,
+                token,
+                new BenchmarkEntryPoint(
+                        BenchmarkData.createImageServer("rgb", IMAGE_SIZE),
+                        BenchmarkData.createDetections(N_DETECTIONS, MEASUREMENTS_PER_DETECTION)
+                )
+        );
+    }
+
+    @TearDown(Level.Trial)
+    public void stopGateway() {
+        gatewayManager.stop();
+        QuPathEntryPoint.clearImageCache();
+        QuPathEntryPoint.setImageCacheSize(0);
+    }
+
+    /**
+     * A call with a small argument and result, which measures the latency of a round trip.
+     */
+    @Benchmark
+    public String roundTrip(Connection connection, Transfer transfer) throws IOException {
+        String answer = transfer.call(connection.client, Py4JClient.ENTRY_POINT, "getExtensionVersion");
+        transfer.received(answer.length());
+        return answer;
+    }
+
+    /**
+     * Read a PNG encoded image. Repeated reads are served by the image cache (enabled when the gateway
+     * is started), so this mostly measures the transfer of bytes (which Py4J encodes with Base64).
+     */
+    @Benchmark
+    public byte[] getImageBytes(Connection connection, Transfer transfer) throws IOException {
+        byte[] bytes = Py4JClient.toBytes(transfer.call(
+                connection.client,
+                Py4JClient.ENTRY_POINT,
+                "getImageBytes",
+                Py4JClient.reference(connection.serverId),
+                Py4JClient.decimal(1),
+                Py4JClient.string("png")
+        ));
+        transfer.received(bytes.length);
+        return bytes;
+    }
+
+    /**
+     * Read the raw pixels of an image, which are larger than an encoded image but need no decoding.
+     */
+    @Benchmark
+    public byte[] getRawBytes(Connection connection, Transfer transfer) throws IOException {
+        byte[] bytes = Py4JClient.toBytes(transfer.call(
+                connection.client,
+                Py4JClient.ENTRY_POINT,
+                "getRawBytes",
+                Py4JClient.reference(connection.serverId),
+                Py4JClient.decimal(1),
+                Py4JClient.bool(true)
+        ));
+        transfer.received(bytes.length);
+        return bytes;
+    }
+
+    /**
+     * Read one measurement of all detections with {@link QuPathEntryPoint#getMeasurements}, and access each
+     * value of the returned list as Python would when iterating over it (one round trip per value).
+     */
+    @Benchmark
+    public double getMeasurementsAsProxy(Connection connection, Transfer transfer) throws IOException {
+        String listId = Py4JClient.toObjectId(transfer.call(
+                connection.client,
+                Py4JClient.ENTRY_POINT,
+                "getMeasurements",
+                Py4JClient.reference(connection.detectionsId),
+                Py4JClient.string(BenchmarkData.getMeasurementNames(1).getFirst())
+        ));
+
+        int size = Py4JClient.toInteger(transfer.call(connection.client, listId, "size"));
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += Py4JClient.toDouble(transfer.call(connection.client, listId, "get", Py4JClient.integer(i)));
+        }
+        transfer.received((long) size * Double.BYTES);
+
+        connection.client.release(listId);
+        return sum;
+    }
+
+    /**
+     * Read all measurements of all detections with {@link QuPathEntryPoint#getMeasurementColumns},
+     * which returns one array of bytes per measurement.
+     */
+    @Benchmark
+    public long getMeasurementColumns(Connection connection, Transfer transfer) throws IOException {
+        String listId = Py4JClient.toObjectId(transfer.call(
+                connection.client,
+                Py4JClient.ENTRY_POINT,
+                "getMeasurementColumns",
+                Py4JClient.reference(connection.detectionsId),
+                Py4JClient.reference(connection.measurementNamesId)
+        ));
+
+        int size = Py4JClient.toInteger(transfer.call(connection.client, listId, "size"));
+        long nBytes = 0;
+        for (int i = 0; i < size; i++) {
+            nBytes += Py4JClient.toBytes(transfer.call(connection.client, listId, "get", Py4JClient.integer(i))).length;
+        }
+        transfer.received(nBytes);
+
+        connection.client.release(listId);
+        return nBytes;
+    }
+
+    /**
+     * Convert all detections to a GeoJSON FeatureCollection.
+     */
+    @Benchmark
+    public String toFeatureCollection(Connection connection, Transfer transfer) throws IOException {
+        String featureCollection = Py4JClient.toText(transfer.call(
+                connection.client,
+                Py4JClient.ENTRY_POINT,
+                "toFeatureCollection",
+                Py4JClient.reference(connection.detectionsId)
+        ));
+        transfer.received(featureCollection.length());
+        return featureCollection;
+    }
+}
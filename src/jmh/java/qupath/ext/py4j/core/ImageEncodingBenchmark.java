@@ -0,0 +1,53 @@
+package qupath.ext.py4j.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import qupath.lib.images.servers.ImageServer;
+import qupath.lib.regions.RegionRequest;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark reading and encoding a region of an image with the formats supported by
+ * {@link QuPathEntryPoint#getImageBytes(ImageServer, RegionRequest, String)}, and encoding the
+ * result with Base64. The image cache is bypassed, so that each operation reads and encodes pixels.
+ * <p>
+ * Throughput is reported in operations per second, where an operation reads and encodes the whole region.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ImageEncodingBenchmark {
+
+    @Param({"rgb", "uint16"})
+    private String imageType;
+    @Param({"512", "2048"})
+    private int size;
+    @Param({"png", "imagej tiff", "raw"})
+    private String format;
+    private ImageServer<BufferedImage> server;
+    private RegionRequest request;
+    private byte[] encodedRegion;
+
+    @Setup
+    public void createImage() throws IOException {
+        server = BenchmarkData.createImageServer(imageType, size);
+        request = RegionRequest.createInstance(server);
+        encodedRegion = QuPathEntryPoint.readRegionBytes(server, request, format);
+    }
+
+    @Benchmark
+    public byte[] getImageBytes() throws IOException {
+        return QuPathEntryPoint.readRegionBytes(server, request, format);
+    }
+
+    @Benchmark
+    public String base64Encode() {
+        return QuPathEntryPoint.base64Encode(encodedRegion);
+    }
+}
@@ -0,0 +1,58 @@
+package qupath.ext.py4j.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import qupath.lib.images.ImageData;
+import qupath.lib.objects.PathObject;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark the conversion of detections to and from GeoJSON, and the creation of measurement tables.
+ * Throughput is reported in operations per minute, where an operation converts all detections.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MINUTES)
+public class ObjectConversionBenchmark {
+
+    private static final int MEASUREMENTS_PER_DETECTION = 20;
+    @Param({"10000", "100000", "1000000"})
+    private int nDetections;
+    private List<PathObject> detections;
+    private ImageData<BufferedImage> imageData;
+    private String featureCollection;
+
+    @Setup(Level.Trial)
+    public void createDetections() {
+        detections = BenchmarkData.createDetections(nDetections, MEASUREMENTS_PER_DETECTION);
+        imageData = BenchmarkData.createImageData(detections);
+        featureCollection = QuPathEntryPoint.toFeatureCollection(detections);
+    }
+
+    @Benchmark
+    public String toFeatureCollection() {
+        return QuPathEntryPoint.toFeatureCollection(detections);
+    }
+
+    @Benchmark
+    public List<String> toGeoJsonFeatureList() {
+        return QuPathEntryPoint.toGeoJsonFeatureList(detections);
+    }
+
+    @Benchmark
+    public List<PathObject> toPathObjects() {
+        return QuPathEntryPoint.toPathObjects(featureCollection);
+    }
+
+    @Benchmark
+    public List<String> getMeasurementTableRows() {
+        return QuPathEntryPoint.getMeasurementTableRows(imageData, detections);
+    }
+}
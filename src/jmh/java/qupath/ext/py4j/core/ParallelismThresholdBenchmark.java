@@ -0,0 +1,46 @@
+package qupath.ext.py4j.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import qupath.lib.objects.PathObject;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark conversions that switch to parallel streams above a number of objects
+ * (100 objects for GeoJSON features, 10,000 objects for measurements), on both sides of these thresholds.
+ * <p>
+ * Throughput is reported in operations per second, where an operation converts all objects.
+ * Comparing the throughput per object across sizes shows whether the thresholds are well placed.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ParallelismThresholdBenchmark {
+
+    private static final int MEASUREMENTS_PER_DETECTION = 20;
+    @Param({"10", "100", "1000", "10000", "100000"})
+    private int nDetections;
+    private List<PathObject> detections;
+    private List<String> measurementNames;
+
+    @Setup
+    public void createDetections() {
+        detections = BenchmarkData.createDetections(nDetections, MEASUREMENTS_PER_DETECTION);
+        measurementNames = BenchmarkData.getMeasurementNames(MEASUREMENTS_PER_DETECTION);
+    }
+
+    @Benchmark
+    public List<String> toGeoJsonFeatureList() {
+        return QuPathEntryPoint.toGeoJsonFeatureList(detections);
+    }
+
+    @Benchmark
+    public List<byte[]> getMeasurementColumns() {
+        return QuPathEntryPoint.getMeasurementColumns(detections, measurementNames);
+    }
+}
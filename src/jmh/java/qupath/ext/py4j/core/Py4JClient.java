@@ -0,0 +1,209 @@
+package qupath.ext.py4j.core;
+
+import py4j.StringUtil;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * A minimal client of the Py4J text protocol, sending the same commands as the Py4J Python library.
+ * This allows measuring what a Python client sees (socket round trips, argument and result marshalling,
+ * Base64 encoding of byte arrays, and one round trip per access to a proxied object) without a Python install.
+ * <p>
+ * Arguments are given already encoded, with the functions of this class (for example {@link #string(String)}).
+ * Answers are returned without the leading "!y" marker, so for example "s" followed by a string, "j" followed
+ * by Base64 encoded bytes, or "ro12" for a reference to a Java object with the ID "o12".
+ * <p>
+ * This class is not thread-safe: each thread should use its own client (and therefore its own connection).
+ */
+class Py4JClient implements AutoCloseable {
+
+    /**
+     * The ID of the entry point of a gateway.
+     */
+    public static final String ENTRY_POINT = "t";
+    private final Socket socket;
+    private final BufferedReader reader;
+    private final BufferedWriter writer;
+
+    /**
+     * Connect to a gateway running on the local host.
+     *
+     * @param port  the port of the gateway
+     * @param token  the authentication token of the gateway, or null if the gateway doesn't use authentication
+     * @throws IOException if the connection or the authentication fails
+     */
+    public Py4JClient(int port, String token) throws IOException {
+        socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        socket.setTcpNoDelay(true);
+        reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+
+        if (token != null) {
+            send("A\n" + token + "\n");
+        }
+    }
+
+    /**
+     * Call a method of a Java object.
+     *
+     * @param targetId  the ID of the object whose method should be called, or {@link #ENTRY_POINT}
+     * @param method  the name of the method to call
+     * @param arguments  the encoded arguments of the method
+     * @return the encoded result, without the leading "!y" marker
+     * @throws IOException if the connection fails or if the call throws an exception
+     */
+    public String call(String targetId, String method, String... arguments) throws IOException {
+        StringBuilder command = new StringBuilder("c\n")
+                .append(targetId).append('\n')
+                .append(method).append('\n');
+        for (String argument: arguments) {
+            command.append(argument).append('\n');
+        }
+        return send(command.append("e\n").toString());
+    }
+
+    /**
+     * Tell the gateway that a Java object is not used by this client anymore, so that it can be garbage collected.
+     *
+     * @param objectId  the ID of the object to release
+     * @throws IOException if the connection fails
+     */
+    public void release(String objectId) throws IOException {
+        send("m\nd\n" + objectId + "\ne\n");
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    /**
+     * @param value  the string to encode
+     * @return the encoded argument
+     */
+    public static String string(String value) {
+        return "s" + StringUtil.escape(value);
+    }
+
+    /**
+     * @param value  the integer to encode
+     * @return the encoded argument
+     */
+    public static String integer(int value) {
+        return "i" + value;
+    }
+
+    /**
+     * @param value  the floating point number to encode
+     * @return the encoded argument
+     */
+    public static String decimal(double value) {
+        return "d" + value;
+    }
+
+    /**
+     * @param value  the boolean to encode
+     * @return the encoded argument
+     */
+    public static String bool(boolean value) {
+        return "b" + value;
+    }
+
+    /**
+     * @param objectId  the ID of the Java object to pass
+     * @return the encoded argument
+     */
+    public static String reference(String objectId) {
+        return "r" + objectId;
+    }
+
+    /**
+     * Get the ID of the Java object referenced by an answer.
+     *
+     * @param answer  an answer returned by {@link #call(String, String, String...)}
+     * @return the ID of the referenced object
+     * @throws IllegalArgumentException if the answer is not a reference to an object, a list, a set, a map, an array, or an iterator
+     */
+    public static String toObjectId(String answer) {
+        if (answer.isEmpty() || "rlhatg".indexOf(answer.charAt(0)) < 0) {
+            throw new IllegalArgumentException(String.format("The answer %s is not a reference", answer));
+        }
+        return answer.substring(1);
+    }
+
+    /**
+     * Decode an answer containing a string.
+     *
+     * @param answer  an answer returned by {@link #call(String, String, String...)}
+     * @return the decoded string
+     * @throws IllegalArgumentException if the answer doesn't contain a string
+     */
+    public static String toText(String answer) {
+        checkType(answer, 's');
+        return StringUtil.unescape(answer.substring(1));
+    }
+
+    /**
+     * Decode an answer containing an array of bytes.
+     *
+     * @param answer  an answer returned by {@link #call(String, String, String...)}
+     * @return the decoded bytes
+     * @throws IllegalArgumentException if the answer doesn't contain bytes
+     */
+    public static byte[] toBytes(String answer) {
+        checkType(answer, 'j');
+        return Base64.getDecoder().decode(answer.substring(1));
+    }
+
+    /**
+     * Decode an answer containing an integer.
+     *
+     * @param answer  an answer returned by {@link #call(String, String, String...)}
+     * @return the decoded integer
+     * @throws IllegalArgumentException if the answer doesn't contain an integer
+     */
+    public static int toInteger(String answer) {
+        checkType(answer, 'i');
+        return Integer.parseInt(answer.substring(1));
+    }
+
+    /**
+     * Decode an answer containing a floating point number.
+     *
+     * @param answer  an answer returned by {@link #call(String, String, String...)}
+     * @return the decoded number
+     * @throws IllegalArgumentException if the answer doesn't contain a floating point number
+     */
+    public static double toDouble(String answer) {
+        checkType(answer, 'd');
+        return Double.parseDouble(answer.substring(1));
+    }
+
+    private String send(String command) throws IOException {
+        writer.write(command);
+        writer.flush();
+
+        String answer = reader.readLine();
+        if (answer == null) {
+            throw new IOException("The gateway closed the connection");
+        } else if (answer.startsWith("!y")) {
+            return answer.substring(2);
+        } else {
+            throw new IOException(String.format("The gateway returned an error: %s", answer));
+        }
+    }
+
+    private static void checkType(String answer, char type) {
+        if (answer.isEmpty() || answer.charAt(0) != type) {
+            throw new IllegalArgumentException(String.format("The answer %s doesn't have the type %s", answer, type));
+        }
+    }
+}
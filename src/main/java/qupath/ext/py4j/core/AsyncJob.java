@@ -0,0 +1,142 @@
+package qupath.ext.py4j.core;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A handle to a computation running in the background, created by an {@link AsyncJobManager}.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @param <T> the type of result of the computation
+ */
+public class AsyncJob<T> {
+
+    private final String id;
+    private final String name;
+    private final Future<T> future;
+    private final Runnable resultRetrievedListener;
+
+    /**
+     * The state of a job.
+     */
+    public enum State {
+        /**
+         * The job is waiting to be run or is running
+         */
+        RUNNING,
+        /**
+         * The job completed successfully
+         */
+        SUCCEEDED,
+        /**
+         * The job completed with an error
+         */
+        FAILED,
+        /**
+         * The job was cancelled
+         */
+        CANCELLED
+    }
+
+    AsyncJob(String id, String name, Future<T> future, Runnable resultRetrievedListener) {
+        this.id = id;
+        this.name = name;
+        this.future = future;
+        this.resultRetrievedListener = resultRetrievedListener;
+    }
+
+    /**
+     * @return a unique identifier of this job
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return a description of the computation performed by this job
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the current state of this job
+     */
+    public State getState() {
+        if (!future.isDone()) {
+            return State.RUNNING;
+        } else if (future.isCancelled()) {
+            return State.CANCELLED;
+        }
+
+        try {
+            future.get();
+            return State.SUCCEEDED;
+        } catch (ExecutionException e) {
+            return State.FAILED;
+        } catch (InterruptedException | CancellationException e) {
+            return State.CANCELLED;
+        }
+    }
+
+    /**
+     * @return whether this job is finished, either because it completed, failed, or was cancelled
+     */
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    /**
+     * Cancel this job. If it is running, its thread is interrupted.
+     *
+     * @return whether the job was cancelled. This is false if it was already finished
+     */
+    public boolean cancel() {
+        return future.cancel(true);
+    }
+
+    /**
+     * Wait for this job to finish and return its result. Once the result is returned, the manager that
+     * created this job stops tracking it, so it can't be retrieved by ID anymore.
+     *
+     * @return the result of this job
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     * @throws ExecutionException if the computation failed
+     * @throws CancellationException if the job was cancelled
+     */
+    public T get() throws InterruptedException, ExecutionException {
+        T result = future.get();
+        resultRetrievedListener.run();
+        return result;
+    }
+
+    /**
+     * Wait for this job to finish, up to the provided timeout, and return its result. Once the result is
+     * returned, the manager that created this job stops tracking it, so it can't be retrieved by ID anymore.
+     *
+     * @param timeoutMillis  the maximum number of milliseconds to wait
+     * @return the result of this job
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     * @throws ExecutionException if the computation failed
+     * @throws TimeoutException if the job is not finished before the timeout expires
+     * @throws CancellationException if the job was cancelled
+     */
+    public T get(long timeoutMillis) throws InterruptedException, ExecutionException, TimeoutException {
+        T result = future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        resultRetrievedListener.run();
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncJob{" +
+                "id='" + id + '\'' +
+                ", name='" + name + '\'' +
+                ", state=" + getState() +
+                '}';
+    }
+}
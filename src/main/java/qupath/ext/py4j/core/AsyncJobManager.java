@@ -0,0 +1,228 @@
+package qupath.ext.py4j.core;
+
+import qupath.lib.common.ThreadTools;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Run computations in the background on a bounded pool of threads, and keep track of them
+ * with {@link AsyncJob AsyncJobs} that can be retrieved by ID.
+ * <p>
+ * A job is forgotten once its result was retrieved with {@link AsyncJob#get()}, or when {@link #release(String)}
+ * is called. Results that are never retrieved are forgotten when more than {@link #MAX_FINISHED_JOBS} finished jobs
+ * are tracked, or when their results take more than {@link #MAX_FINISHED_JOBS_BYTES} bytes, starting with the
+ * oldest ones.
+ * <p>
+ * This class is thread-safe.
+ */
+class AsyncJobManager {
+
+    /**
+     * The maximum number of finished jobs that are kept to be retrieved by ID.
+     */
+    public static final int MAX_FINISHED_JOBS = 100;
+    /**
+     * The maximum number of bytes taken by the results of finished jobs that are kept to be retrieved by ID.
+     * Only results that are arrays of bytes or strings are counted.
+     */
+    public static final long MAX_FINISHED_JOBS_BYTES = 256L * 1024 * 1024;
+    private final Map<String, AsyncJob<?>> jobs = new LinkedHashMap<>();
+    // The approximate number of bytes of the results of finished jobs, by job ID
+    private final Map<String, Long> resultBytes = new LinkedHashMap<>();
+    private long totalResultBytes = 0;
+    private final ThreadPoolExecutor executor;
+    private volatile Consumer<AsyncJob<?>> jobDoneListener;
+
+    /**
+     * Create the manager.
+     *
+     * @param nThreads  the number of threads running jobs in parallel
+     * @throws IllegalArgumentException if the number of threads is not positive
+     */
+    public AsyncJobManager(int nThreads) {
+        if (nThreads <= 0) {
+            throw new IllegalArgumentException(String.format("The number of threads %d is not positive", nThreads));
+        }
+
+        executor = new ThreadPoolExecutor(
+                nThreads,
+                nThreads,
+                0,
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                ThreadTools.createThreadFactory("py4j-async-job-", true)
+        );
+    }
+
+    /**
+     * Submit a computation to run in the background.
+     *
+     * @param name  a description of the computation
+     * @param computation  the computation to run
+     * @return a job representing the computation
+     * @param <T>  the type of result of the computation
+     */
+    public <T> AsyncJob<T> submit(String name, Callable<T> computation) {
+        String id = UUID.randomUUID().toString();
+        JobTask<T> task = new JobTask<>(QuPathEntryPoint.getCallMetricsRecorder().attributeToConnection(computation));
+        AsyncJob<T> job = new AsyncJob<>(id, name, task, () -> forget(id));
+        task.job = job;
+
+        // The job is tracked before it runs, so that it is known when it finishes
+        synchronized (jobs) {
+            jobs.put(id, job);
+        }
+        executor.execute(task);
+        return job;
+    }
+
+    /**
+     * Get a job by ID.
+     *
+     * @param id  the ID of the job
+     * @return the job with the provided ID, or null if it doesn't exist or was forgotten
+     */
+    public AsyncJob<?> get(String id) {
+        synchronized (jobs) {
+            return jobs.get(id);
+        }
+    }
+
+    /**
+     * @return all jobs currently tracked, from the oldest to the newest
+     */
+    public List<AsyncJob<?>> getJobs() {
+        synchronized (jobs) {
+            return List.copyOf(jobs.values());
+        }
+    }
+
+    /**
+     * Stop tracking a job. If it is still running, it is cancelled.
+     *
+     * @param id  the ID of the job to release
+     */
+    public void release(String id) {
+        AsyncJob<?> job = forget(id);
+        if (job != null) {
+            job.cancel();
+        }
+    }
+
+    /**
+     * Set a function called each time a job finishes, either because it completed, failed, or was cancelled.
+     * It is called from the thread that finished the job, so it should return quickly.
+     *
+     * @param jobDoneListener  the function to call with the finished job, or null to not be notified
+     */
+    public void setJobDoneListener(Consumer<AsyncJob<?>> jobDoneListener) {
+        this.jobDoneListener = jobDoneListener;
+    }
+
+    /**
+     * Set the number of threads running jobs in parallel.
+     *
+     * @param nThreads  the number of threads running jobs in parallel
+     * @throws IllegalArgumentException if the number of threads is not positive
+     */
+    public synchronized void setNumThreads(int nThreads) {
+        if (nThreads <= 0) {
+            throw new IllegalArgumentException(String.format("The number of threads %d is not positive", nThreads));
+        }
+
+        // The core size must never be larger than the maximum size
+        if (nThreads > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(nThreads);
+            executor.setCorePoolSize(nThreads);
+        } else {
+            executor.setCorePoolSize(nThreads);
+            executor.setMaximumPoolSize(nThreads);
+        }
+    }
+
+    /**
+     * @return the number of threads running jobs in parallel
+     */
+    public int getNumThreads() {
+        return executor.getMaximumPoolSize();
+    }
+
+    private class JobTask<T> extends FutureTask<T> {
+
+        private AsyncJob<T> job;
+
+        private JobTask(Callable<T> computation) {
+            super(computation);
+        }
+
+        @Override
+        protected void done() {
+            if (job != null) {
+                jobFinished(job.getId(), isCancelled() ? 0 : getResultBytes(this));
+            }
+
+            Consumer<AsyncJob<?>> listener = jobDoneListener;
+            if (listener != null && job != null) {
+                listener.accept(job);
+            }
+        }
+    }
+
+    private AsyncJob<?> forget(String id) {
+        synchronized (jobs) {
+            Long bytes = resultBytes.remove(id);
+            if (bytes != null) {
+                totalResultBytes -= bytes;
+            }
+            return jobs.remove(id);
+        }
+    }
+
+    private void jobFinished(String id, long bytes) {
+        synchronized (jobs) {
+            // The job may have been released while it was running
+            if (!jobs.containsKey(id)) {
+                return;
+            }
+            resultBytes.put(id, bytes);
+            totalResultBytes += bytes;
+
+            // Finished jobs are in the order they finished, so the oldest results are forgotten first
+            Iterator<Map.Entry<String, Long>> iterator = resultBytes.entrySet().iterator();
+            while ((resultBytes.size() > MAX_FINISHED_JOBS || totalResultBytes > MAX_FINISHED_JOBS_BYTES) && iterator.hasNext()) {
+                Map.Entry<String, Long> entry = iterator.next();
+                totalResultBytes -= entry.getValue();
+                jobs.remove(entry.getKey());
+                iterator.remove();
+            }
+        }
+    }
+
+    private static long getResultBytes(Future<?> future) {
+        try {
+            Object result = future.get();
+            if (result instanceof byte[] bytes) {
+                return bytes.length;
+            } else if (result instanceof String string) {
+                return 2L * string.length();
+            } else {
+                return 0;
+            }
+        } catch (InterruptedException | ExecutionException | CancellationException e) {
+            return 0;
+        }
+    }
+}
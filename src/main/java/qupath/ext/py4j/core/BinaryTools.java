@@ -0,0 +1,74 @@
+package qupath.ext.py4j.core;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Utility methods to convert primitive arrays to little-endian arrays of bytes,
+ * which can be read without copy from Python with {@code numpy.frombuffer}.
+ */
+class BinaryTools {
+
+    private BinaryTools() {
+        throw new AssertionError("This class is not instantiable.");
+    }
+
+    /**
+     * Convert an array of doubles to little-endian bytes (NumPy type "&lt;f8").
+     *
+     * @param values  the values to convert
+     * @return an array of bytes containing the provided values
+     */
+    public static byte[] toBytes(double[] values) {
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asDoubleBuffer().put(values);
+        return buffer.array();
+    }
+
+    /**
+     * Convert an array of integers to little-endian bytes (NumPy type "&lt;i4").
+     *
+     * @param values  the values to convert
+     * @return an array of bytes containing the provided values
+     */
+    public static byte[] toBytes(int[] values) {
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asIntBuffer().put(values);
+        return buffer.array();
+    }
+
+    /**
+     * Convert little-endian bytes (NumPy type "&lt;f8") to an array of doubles.
+     *
+     * @param bytes  the bytes to convert
+     * @return an array of doubles contained in the provided bytes
+     * @throws IllegalArgumentException if the number of bytes is not a multiple of 8
+     */
+    public static double[] toDoubles(byte[] bytes) {
+        if (bytes.length % Double.BYTES != 0) {
+            throw new IllegalArgumentException(String.format("The number of bytes %d is not a multiple of 8", bytes.length));
+        }
+
+        double[] values = new double[bytes.length / Double.BYTES];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(values);
+        return values;
+    }
+
+    /**
+     * Convert UUIDs to bytes. Each UUID takes 16 bytes in big-endian order, which corresponds to the
+     * {@code bytes} parameter of Python's {@code uuid.UUID}.
+     *
+     * @param uuids  the UUIDs to convert
+     * @return an array of bytes containing the provided UUIDs
+     */
+    public static byte[] toBytes(Collection<UUID> uuids) {
+        ByteBuffer buffer = ByteBuffer.allocate(uuids.size() * 2 * Long.BYTES).order(ByteOrder.BIG_ENDIAN);
+        for (UUID uuid: uuids) {
+            buffer.putLong(uuid.getMostSignificantBits());
+            buffer.putLong(uuid.getLeastSignificantBits());
+        }
+        return buffer.array();
+    }
+}
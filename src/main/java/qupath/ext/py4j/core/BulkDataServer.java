@@ -0,0 +1,178 @@
+package qupath.ext.py4j.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qupath.lib.common.ThreadTools;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A server sending {@link ChunkedTransfer ChunkedTransfers} registered in {@link BulkDataTickets} over plain sockets,
+ * next to a Py4J gateway. Control calls stay on the Py4J text protocol, while large binary payloads go through this
+ * server without any encoding.
+ * <p>
+ * The server only listens on the loopback address. The protocol is the following:
+ * <ol>
+ *     <li>The client connects and sends the token of the gateway (or an empty string if the gateway doesn't
+ *     use authentication), a newline character, the ticket, and a newline character, all UTF-8 encoded.</li>
+ *     <li>The server answers with a big-endian signed 64-bit integer: the size of the payload, {@link #INVALID_TOKEN}
+ *     if the token is not valid, or {@link #INVALID_TICKET} if the ticket doesn't exist, was already used, or expired.</li>
+ *     <li>If the size is not negative, the server sends the payload, and then closes the connection.</li>
+ * </ol>
+ * This class is thread-safe.
+ */
+class BulkDataServer implements AutoCloseable {
+
+    /**
+     * The size sent to the client if the token is not valid.
+     */
+    public static final long INVALID_TOKEN = -1;
+    /**
+     * The size sent to the client if the ticket is not valid.
+     */
+    public static final long INVALID_TICKET = -2;
+    private static final Logger logger = LoggerFactory.getLogger(BulkDataServer.class);
+    private static final int MAX_REQUEST_BYTES = 1024;
+    private static final int REQUEST_TIMEOUT_MILLIS = 10000;
+    private final ServerSocketChannel serverChannel;
+    private final byte[] token;
+    private final BulkDataTickets tickets;
+    private final ExecutorService executor;
+
+    /**
+     * Create and start the server.
+     *
+     * @param port  the port the server should listen to, or 0 to use any free port
+     * @param token  the token clients should send, or null or blank to not use authentication
+     * @param tickets  the registry of transfers that can be fetched
+     * @param nThreads  the maximum number of payloads sent at the same time
+     * @throws IOException when the server cannot listen to the provided port
+     */
+    public BulkDataServer(int port, String token, BulkDataTickets tickets, int nThreads) throws IOException {
+        this.token = (token == null || token.isBlank() ? "" : token).getBytes(StandardCharsets.UTF_8);
+        this.tickets = tickets;
+
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+
+        executor = new ThreadPoolExecutor(
+                nThreads,
+                nThreads,
+                0,
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                ThreadTools.createThreadFactory("py4j-bulk-data-", true)
+        );
+
+        Thread acceptThread = new Thread(this::acceptConnections, "py4j-bulk-data-server");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    /**
+     * @return the port this server listens to
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Stop accepting connections and interrupt the payloads being sent. Registered transfers are not closed.
+     */
+    @Override
+    public void close() {
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            logger.warn("Error when closing bulk data server", e);
+        }
+        executor.shutdownNow();
+    }
+
+    private void acceptConnections() {
+        while (serverChannel.isOpen()) {
+            try {
+                SocketChannel client = serverChannel.accept();
+                try {
+                    executor.execute(() -> handleConnection(client));
+                } catch (RejectedExecutionException e) {
+                    // The server was closed after accepting the connection
+                    logger.debug("Bulk data server closed, rejecting connection");
+                    client.close();
+                }
+            } catch (ClosedChannelException e) {
+                logger.debug("Bulk data server closed");
+            } catch (IOException e) {
+                logger.error("Error when accepting bulk data connection", e);
+            }
+        }
+    }
+
+    private void handleConnection(SocketChannel client) {
+        try (client) {
+            client.socket().setSoTimeout(REQUEST_TIMEOUT_MILLIS);
+            InputStream inputStream = client.socket().getInputStream();
+
+            byte[] receivedToken = readLine(inputStream);
+            String ticket = new String(readLine(inputStream), StandardCharsets.UTF_8);
+
+            // Constant-time comparison, so that the token cannot be guessed from response times
+            if (!MessageDigest.isEqual(token, receivedToken)) {
+                logger.warn("Bulk data request with invalid token rejected");
+                writeSize(client, INVALID_TOKEN);
+                return;
+            }
+
+            ChunkedTransfer transfer = tickets.take(ticket);
+            if (transfer == null) {
+                writeSize(client, INVALID_TICKET);
+                return;
+            }
+
+            try (transfer) {
+                writeSize(client, transfer.getSize());
+                transfer.transferTo(client);
+            }
+        } catch (IOException e) {
+            logger.debug("Error when handling bulk data connection", e);
+        }
+    }
+
+    private static byte[] readLine(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        int b;
+        while ((b = inputStream.read()) != '\n') {
+            if (b < 0) {
+                throw new IOException("Connection closed before the end of the request");
+            }
+            if (line.size() >= MAX_REQUEST_BYTES) {
+                throw new IOException("Request too long");
+            }
+            line.write(b);
+        }
+        return line.toByteArray();
+    }
+
+    private static void writeSize(SocketChannel client, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES).putLong(size).flip();
+        while (buffer.hasRemaining()) {
+            client.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package qupath.ext.py4j.core;
+
+import qupath.lib.common.ThreadTools;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A registry of {@link ChunkedTransfer ChunkedTransfers} waiting to be fetched through a {@link BulkDataServer},
+ * each identified by a random ticket.
+ * <p>
+ * A ticket can only be used once. Transfers whose ticket is not used within {@link #TICKET_LIFETIME_MILLIS}
+ * are closed and forgotten. Expired tickets are looked for every {@link #EXPIRATION_CHECK_INTERVAL_MILLIS} by
+ * a background thread (shared by all registries), and each time a ticket is registered or taken.
+ * <p>
+ * Each {@link Gateway} with a bulk data server has its own registry, so that a ticket can only be fetched
+ * with the token of the gateway that created it.
+ * <p>
+ * This class is thread-safe.
+ */
+class BulkDataTickets {
+
+    /**
+     * The number of milliseconds after which an unused ticket expires.
+     */
+    public static final long TICKET_LIFETIME_MILLIS = 10 * 60 * 1000;
+    /**
+     * The number of milliseconds between two checks of expired tickets by the background thread.
+     */
+    public static final long EXPIRATION_CHECK_INTERVAL_MILLIS = 60 * 1000;
+    private static final ScheduledExecutorService expirationChecker = Executors.newSingleThreadScheduledExecutor(
+            ThreadTools.createThreadFactory("py4j-bulk-data-tickets-", true)
+    );
+    private final Map<String, Ticket> tickets = new ConcurrentHashMap<>();
+    private final ScheduledFuture<?> expirationCheck;
+
+    private record Ticket(ChunkedTransfer transfer, long expirationTime) {}
+
+    /**
+     * Create the registry and start looking for expired tickets in the background, until {@link #close()} is called.
+     */
+    public BulkDataTickets() {
+        expirationCheck = expirationChecker.scheduleWithFixedDelay(
+                this::forgetExpiredTickets,
+                EXPIRATION_CHECK_INTERVAL_MILLIS,
+                EXPIRATION_CHECK_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS
+        );
+    }
+
+    /**
+     * Register a transfer.
+     *
+     * @param transfer  the transfer to register. It is closed once fetched or when its ticket expires
+     * @return the ticket identifying the transfer
+     */
+    public String register(ChunkedTransfer transfer) {
+        forgetExpiredTickets();
+
+        String ticket = UUID.randomUUID().toString();
+        tickets.put(ticket, new Ticket(transfer, System.currentTimeMillis() + TICKET_LIFETIME_MILLIS));
+        return ticket;
+    }
+
+    /**
+     * Retrieve and forget the transfer identified by a ticket.
+     *
+     * @param ticket  the ticket identifying the transfer
+     * @return the transfer identified by the ticket, or null if the ticket doesn't exist, was already used, or expired
+     */
+    public ChunkedTransfer take(String ticket) {
+        forgetExpiredTickets();
+        Ticket entry = tickets.remove(ticket);
+
+        if (entry == null) {
+            return null;
+        } else if (entry.expirationTime() < System.currentTimeMillis()) {
+            entry.transfer().close();
+            return null;
+        } else {
+            return entry.transfer();
+        }
+    }
+
+    /**
+     * Close and forget all registered transfers.
+     */
+    public void clear() {
+        for (String ticket: tickets.keySet()) {
+            Ticket entry = tickets.remove(ticket);
+            if (entry != null) {
+                entry.transfer().close();
+            }
+        }
+    }
+
+    /**
+     * Stop looking for expired tickets in the background, and close and forget all registered transfers.
+     */
+    public void close() {
+        expirationCheck.cancel(false);
+        clear();
+    }
+
+    private void forgetExpiredTickets() {
+        long now = System.currentTimeMillis();
+
+        Iterator<Ticket> iterator = tickets.values().iterator();
+        while (iterator.hasNext()) {
+            Ticket entry = iterator.next();
+            if (entry.expirationTime() < now) {
+                iterator.remove();
+                entry.transfer().close();
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package qupath.ext.py4j.core;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limit the number of heavy calls (such as pixel reads or exports) running at the same time.
+ * <p>
+ * Calls that cannot run immediately wait in a queue. A call is rejected with a {@link RejectedExecutionException}
+ * if the queue is full, or if it waited longer than a timeout. This makes the application degrade predictably
+ * under load, instead of running out of memory.
+ * <p>
+ * Calls made from a thread already running a limited call are not limited, so that heavy calls can use each other.
+ * <p>
+ * This class is thread-safe.
+ */
+class CallLimiter {
+
+    private final ThreadLocal<Boolean> runningLimitedCall = ThreadLocal.withInitial(() -> false);
+    private final AtomicInteger numQueuedCalls = new AtomicInteger(0);
+    private final AtomicLong numRejectedCalls = new AtomicLong(0);
+    private Semaphore semaphore = null;
+    private int maxConcurrentCalls = 0;
+    private int maxQueuedCalls = 0;
+    private long queueTimeoutMillis = 0;
+
+    /**
+     * A call that can throw an exception.
+     *
+     * @param <T> the type of result of the call
+     * @param <E> the type of exception the call can throw
+     */
+    @FunctionalInterface
+    public interface Call<T, E extends Exception> {
+
+        /**
+         * @return the result of the call
+         * @throws E if the call fails
+         */
+        T call() throws E;
+    }
+
+    /**
+     * Set the limits applied to calls. Calls already running or waiting are not affected.
+     *
+     * @param maxConcurrentCalls  the maximum number of calls running at the same time, or 0 to not limit calls
+     * @param maxQueuedCalls  the maximum number of calls waiting to run, or 0 to not limit the queue
+     * @param queueTimeoutMillis  the maximum number of milliseconds a call can wait to run, or 0 to wait indefinitely
+     */
+    public synchronized void setLimits(int maxConcurrentCalls, int maxQueuedCalls, long queueTimeoutMillis) {
+        this.maxConcurrentCalls = Math.max(0, maxConcurrentCalls);
+        this.maxQueuedCalls = Math.max(0, maxQueuedCalls);
+        this.queueTimeoutMillis = Math.max(0, queueTimeoutMillis);
+        this.semaphore = this.maxConcurrentCalls > 0 ? new Semaphore(this.maxConcurrentCalls, true) : null;
+    }
+
+    /**
+     * @return the maximum number of calls running at the same time, or 0 if calls are not limited
+     */
+    public synchronized int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    /**
+     * @return the maximum number of calls waiting to run, or 0 if the queue is not limited
+     */
+    public synchronized int getMaxQueuedCalls() {
+        return maxQueuedCalls;
+    }
+
+    /**
+     * @return the maximum number of milliseconds a call can wait to run, or 0 if calls wait indefinitely
+     */
+    public synchronized long getQueueTimeoutMillis() {
+        return queueTimeoutMillis;
+    }
+
+    /**
+     * @return the number of calls currently waiting to run
+     */
+    public int getNumQueuedCalls() {
+        return numQueuedCalls.get();
+    }
+
+    /**
+     * @return the number of calls rejected since the creation of this limiter
+     */
+    public long getNumRejectedCalls() {
+        return numRejectedCalls.get();
+    }
+
+    /**
+     * Run a call once the limits allow it.
+     *
+     * @param call  the call to run
+     * @return the result of the call
+     * @param <T> the type of result of the call
+     * @param <E> the type of exception the call can throw
+     * @throws E if the call fails
+     * @throws RejectedExecutionException if the queue is full, if the call waited longer than the timeout,
+     * or if the calling thread was interrupted while waiting
+     */
+    public <T, E extends Exception> T call(Call<T, E> call) throws E {
+        Semaphore semaphore;
+        int maxQueuedCalls;
+        long queueTimeoutMillis;
+        synchronized (this) {
+            semaphore = this.semaphore;
+            maxQueuedCalls = this.maxQueuedCalls;
+            queueTimeoutMillis = this.queueTimeoutMillis;
+        }
+
+        if (semaphore == null || runningLimitedCall.get()) {
+            return call.call();
+        }
+
+        acquire(semaphore, maxQueuedCalls, queueTimeoutMillis);
+        runningLimitedCall.set(true);
+        try {
+            return call.call();
+        } finally {
+            runningLimitedCall.set(false);
+            semaphore.release();
+        }
+    }
+
+    private void acquire(Semaphore semaphore, int maxQueuedCalls, long queueTimeoutMillis) {
+        try {
+            // Unlike tryAcquire(), this respects the fairness of the semaphore and doesn't overtake waiting calls
+            if (semaphore.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw reject("Interrupted while waiting to run");
+        }
+
+        try {
+            if (numQueuedCalls.incrementAndGet() > maxQueuedCalls && maxQueuedCalls > 0) {
+                throw reject(String.format("Too many calls waiting to run (maximum %d)", maxQueuedCalls));
+            }
+
+            if (queueTimeoutMillis > 0) {
+                if (!semaphore.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                    throw reject(String.format("Call waited more than %d ms to run", queueTimeoutMillis));
+                }
+            } else {
+                semaphore.acquire();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw reject("Interrupted while waiting to run");
+        } finally {
+            numQueuedCalls.decrementAndGet();
+        }
+    }
+
+    private RejectedExecutionException reject(String message) {
+        numRejectedCalls.incrementAndGet();
+        return new RejectedExecutionException(message);
+    }
+}
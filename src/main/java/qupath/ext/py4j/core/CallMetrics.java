@@ -0,0 +1,206 @@
+package qupath.ext.py4j.core;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Record {@link CallStatistics} on calls made to the entry point, grouped by method and by connection.
+ * <p>
+ * Py4J dedicates one thread to each connection, so the connection making a call is identified by the
+ * calling thread (and named after it). Work started by a connection and run on other threads (such as
+ * asynchronous jobs, tile jobs, project exports, and GeoJSON imports) is attributed to this connection if the
+ * task was wrapped with {@link #attributeToConnection(Runnable)} or {@link #attributeToConnection(Callable)}
+ * when it was submitted. Statistics of connections whose thread stopped are forgotten, so that short-lived
+ * connections don't accumulate.
+ * <p>
+ * Only the outermost call is recorded: calls made while another call is being recorded on the same thread,
+ * or from a thread of a {@link ForkJoinPool} (used by parallel streams within a recorded call), are not recorded.
+ * <p>
+ * The payload size of a call is the length of the returned byte array, the length of the returned
+ * string (in characters), 8 bytes per returned number, the size of a returned {@link ChunkedTransfer},
+ * or the sum of these sizes for a returned collection.
+ * Other results have a size of 0.
+ * <p>
+ * This class is thread-safe.
+ */
+public class CallMetrics {
+
+    private final Map<String, CallStatistics> methods = new ConcurrentHashMap<>();
+    private final Map<Thread, CallStatistics> connections = new ConcurrentHashMap<>();
+    private final ThreadLocal<Boolean> recordingCall = ThreadLocal.withInitial(() -> false);
+    private final ThreadLocal<Thread> attributedConnection = new ThreadLocal<>();
+
+    /**
+     * Run a call and record its statistics.
+     *
+     * @param method  the name of the method making the call
+     * @param call  the call to run
+     * @return the result of the call
+     * @param <T> the type of result of the call
+     * @param <E> the type of exception the call can throw
+     * @throws E if the call fails
+     */
+    <T, E extends Exception> T record(String method, CallLimiter.Call<T, E> call) throws E {
+        if (recordingCall.get() || Thread.currentThread() instanceof ForkJoinWorkerThread) {
+            return call.call();
+        }
+        Thread connection = getCurrentConnection();
+
+        recordingCall.set(true);
+        long start = System.nanoTime();
+        T result = null;
+        boolean failed = true;
+        try {
+            result = call.call();
+            failed = false;
+            return result;
+        } finally {
+            recordingCall.set(false);
+            long nanos = System.nanoTime() - start;
+            long bytes = getPayloadSize(result);
+
+            methods.computeIfAbsent(method, m -> new CallStatistics()).record(nanos, bytes, failed);
+            if (!connections.containsKey(connection)) {
+                forgetStoppedConnections();
+            }
+            connections.computeIfAbsent(connection, t -> new CallStatistics()).record(nanos, bytes, failed);
+        }
+    }
+
+    /**
+     * Wrap a task that will run on another thread, so that the calls it makes are attributed to the connection
+     * submitting it rather than to the thread running it. This function must be called from the submitting thread.
+     *
+     * @param task  the task to wrap
+     * @return a task running the provided task on behalf of the current connection
+     */
+    Runnable attributeToConnection(Runnable task) {
+        Thread connection = getCurrentConnection();
+        return () -> runOnBehalfOf(connection, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Same as {@link #attributeToConnection(Runnable)}, but with a task returning a result.
+     *
+     * @param task  the task to wrap
+     * @return a task running the provided task on behalf of the current connection
+     * @param <T> the type of result of the task
+     */
+    <T> Callable<T> attributeToConnection(Callable<T> task) {
+        Thread connection = getCurrentConnection();
+        return () -> runOnBehalfOf(connection, task::call);
+    }
+
+    /**
+     * @return a sorted copy of the statistics of each method that was called, with method names as keys
+     */
+    public Map<String, CallStatistics> getMethodStatistics() {
+        return new TreeMap<>(methods);
+    }
+
+    /**
+     * @return a sorted copy of the statistics of each connection that made a call and whose thread is still
+     * running, with thread names as keys
+     */
+    public Map<String, CallStatistics> getConnectionStatistics() {
+        forgetStoppedConnections();
+
+        Map<String, CallStatistics> statistics = new TreeMap<>();
+        connections.forEach((thread, callStatistics) -> statistics.put(thread.getName(), callStatistics));
+        return statistics;
+    }
+
+    /**
+     * Forget all recorded statistics.
+     */
+    public void reset() {
+        methods.clear();
+        connections.clear();
+    }
+
+    /**
+     * Describe the recorded statistics in JSON. The returned object contains a "methods" and a "connections"
+     * objects, which map method and connection names to objects with the "count", "errors", "payloadBytes",
+     * "meanMillis", "p50Millis", "p95Millis", "p99Millis", and "maxMillis" properties.
+     *
+     * @return a JSON representation of the recorded statistics
+     */
+    public String toJson() {
+        JsonObject json = new JsonObject();
+        json.add("methods", toJson(getMethodStatistics()));
+        json.add("connections", toJson(getConnectionStatistics()));
+        return new GsonBuilder().setPrettyPrinting().create().toJson(json);
+    }
+
+    private Thread getCurrentConnection() {
+        Thread connection = attributedConnection.get();
+        return connection == null ? Thread.currentThread() : connection;
+    }
+
+    private <T, E extends Exception> T runOnBehalfOf(Thread connection, CallLimiter.Call<T, E> call) throws E {
+        // The previous connection is restored, as tasks can run on the thread submitting them (for example
+        // when a queue is full)
+        Thread previousConnection = attributedConnection.get();
+        attributedConnection.set(connection);
+        try {
+            return call.call();
+        } finally {
+            attributedConnection.set(previousConnection);
+        }
+    }
+
+    private void forgetStoppedConnections() {
+        connections.keySet().removeIf(thread -> !thread.isAlive());
+    }
+
+    private static JsonObject toJson(Map<String, CallStatistics> statistics) {
+        JsonObject json = new JsonObject();
+
+        for (var entry: statistics.entrySet()) {
+            CallStatistics callStatistics = entry.getValue();
+
+            JsonObject statisticsJson = new JsonObject();
+            statisticsJson.addProperty("count", callStatistics.getCount());
+            statisticsJson.addProperty("errors", callStatistics.getErrorCount());
+            statisticsJson.addProperty("payloadBytes", callStatistics.getPayloadBytes());
+            statisticsJson.addProperty("meanMillis", callStatistics.getMeanMillis());
+            statisticsJson.addProperty("p50Millis", callStatistics.getPercentileMillis(50));
+            statisticsJson.addProperty("p95Millis", callStatistics.getPercentileMillis(95));
+            statisticsJson.addProperty("p99Millis", callStatistics.getPercentileMillis(99));
+            statisticsJson.addProperty("maxMillis", callStatistics.getMaxMillis());
+
+            json.add(entry.getKey(), statisticsJson);
+        }
+
+        return json;
+    }
+
+    private static long getPayloadSize(Object result) {
+        if (result instanceof byte[] bytes) {
+            return bytes.length;
+        } else if (result instanceof CharSequence text) {
+            return text.length();
+        } else if (result instanceof double[] doubles) {
+            return (long) doubles.length * Double.BYTES;
+        } else if (result instanceof Number) {
+            return Double.BYTES;
+        } else if (result instanceof ChunkedTransfer transfer) {
+            return transfer.getSize();
+        } else if (result instanceof Collection<?> collection) {
+            return collection.stream().mapToLong(CallMetrics::getPayloadSize).sum();
+        } else {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package qupath.ext.py4j.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Statistics on a group of calls (for example all calls to a method): number of calls, number of errors,
+ * size of the returned payloads, and a histogram of latencies.
+ * <p>
+ * Latencies are stored in logarithmic buckets (four buckets per power of two nanoseconds), so percentiles
+ * are approximate: a returned percentile is the upper bound of its bucket, which is at most 25% above the
+ * actual latency.
+ * <p>
+ * This class is thread-safe. Values read while calls are recorded may be slightly inconsistent with each other.
+ */
+public class CallStatistics {
+
+    private static final int BUCKETS_PER_POWER_OF_TWO = 4;
+    private static final int NUMBER_OF_BUCKETS = Long.SIZE * BUCKETS_PER_POWER_OF_TWO;
+    private final AtomicLong count = new AtomicLong(0);
+    private final AtomicLong errorCount = new AtomicLong(0);
+    private final AtomicLong payloadBytes = new AtomicLong(0);
+    private final AtomicLong totalNanos = new AtomicLong(0);
+    private final AtomicLong maxNanos = new AtomicLong(0);
+    private final AtomicLongArray histogram = new AtomicLongArray(NUMBER_OF_BUCKETS);
+
+    /**
+     * Record a call.
+     *
+     * @param nanos  the duration of the call in nanoseconds
+     * @param bytes  the size of the payload returned by the call
+     * @param failed  whether the call threw an exception
+     */
+    void record(long nanos, long bytes, boolean failed) {
+        count.incrementAndGet();
+        if (failed) {
+            errorCount.incrementAndGet();
+        }
+        payloadBytes.addAndGet(bytes);
+        totalNanos.addAndGet(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+        histogram.incrementAndGet(getBucket(nanos));
+    }
+
+    /**
+     * @return the number of recorded calls, including failed ones
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return the number of recorded calls that threw an exception
+     */
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    /**
+     * @return the total size of the payloads returned by the recorded calls (see {@link CallMetrics} for how
+     * the size of a payload is computed)
+     */
+    public long getPayloadBytes() {
+        return payloadBytes.get();
+    }
+
+    /**
+     * @return the mean latency of the recorded calls in milliseconds, or 0 if no call was recorded
+     */
+    public double getMeanMillis() {
+        long count = getCount();
+        return count == 0 ? 0 : totalNanos.get() / (count * 1e6);
+    }
+
+    /**
+     * @return the maximum latency of the recorded calls in milliseconds, or 0 if no call was recorded
+     */
+    public double getMaxMillis() {
+        return maxNanos.get() / 1e6;
+    }
+
+    /**
+     * Get an approximate percentile of the latency of the recorded calls.
+     *
+     * @param percentile  the percentile to compute, between 0 and 100
+     * @return the approximate percentile in milliseconds, or 0 if no call was recorded
+     * @throws IllegalArgumentException if the percentile is not between 0 and 100
+     */
+    public double getPercentileMillis(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException(String.format("The percentile %f is not between 0 and 100", percentile));
+        }
+
+        long[] counts = new long[NUMBER_OF_BUCKETS];
+        long total = 0;
+        for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+            counts[i] = histogram.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(getBucketUpperBound(i), maxNanos.get()) / 1e6;
+            }
+        }
+        return getMaxMillis();
+    }
+
+    private static int getBucket(long nanos) {
+        if (nanos <= 1) {
+            return 0;
+        }
+
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos);
+        // The bits following the highest set bit give the position inside the power of two
+        int subBucket = exponent >= 2 ?
+                (int) ((nanos >>> (exponent - 2)) & (BUCKETS_PER_POWER_OF_TWO - 1)) :
+                (int) ((nanos << (2 - exponent)) & (BUCKETS_PER_POWER_OF_TWO - 1));
+        return exponent * BUCKETS_PER_POWER_OF_TWO + subBucket;
+    }
+
+    private static double getBucketUpperBound(int bucket) {
+        int exponent = bucket / BUCKETS_PER_POWER_OF_TWO;
+        int subBucket = bucket % BUCKETS_PER_POWER_OF_TWO;
+        return Math.pow(2, exponent) * (1 + (subBucket + 1d) / BUCKETS_PER_POWER_OF_TWO);
+    }
+}
@@ -0,0 +1,283 @@
+package qupath.ext.py4j.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A binary result kept on the Java side, that a client reads in chunks of bounded size instead of
+ * receiving it at once. This avoids holding the result and its transferred copy in memory at the
+ * same time, and avoids the limit on the length of Java and Python strings.
+ * <p>
+ * A transfer is backed either by an array of bytes, or by a temporary file (see {@link #createTempFile(String)})
+ * that is deleted when the transfer is closed. Files of transfers that are still open are deleted when the JVM
+ * exits, and files left by previous processes (for example after a crash) are deleted by
+ * {@link #deleteLeftoverFiles()}.
+ * <p>
+ * From Python, a transfer can be read with:
+ * <pre>{@code
+ * data = bytearray()
+ * while transfer.hasNext():
+ *     data += transfer.nextChunk(4 * 1024 * 1024)
+ * transfer.close()
+ * }</pre>
+ * This class is thread-safe.
+ */
+public class ChunkedTransfer implements AutoCloseable {
+
+    /**
+     * The number of milliseconds after which temporary files not belonging to an open transfer of this process
+     * are considered left by a previous process.
+     */
+    public static final long LEFTOVER_FILE_AGE_MILLIS = 24 * 60 * 60 * 1000;
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedTransfer.class);
+    private static final String TEMP_FILE_PREFIX = "qupath-py4j-transfer-";
+    // Only contains the files of open transfers, so that it doesn't grow over time
+    private static final Set<Path> openFiles = ConcurrentHashMap.newKeySet();
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(ChunkedTransfer::deleteOpenFiles, "py4j-transfer-cleanup"));
+    }
+    private final long size;
+    private final Path file;
+    private byte[] bytes;
+    private FileChannel channel;
+    private long position = 0;
+    private boolean closed = false;
+
+    private ChunkedTransfer(byte[] bytes, Path file, FileChannel channel, long size) {
+        this.bytes = bytes;
+        this.file = file;
+        this.channel = channel;
+        this.size = size;
+    }
+
+    /**
+     * Create a transfer backed by an array of bytes.
+     *
+     * @param bytes  the bytes to transfer. They must not be modified afterwards
+     * @return a transfer of the provided bytes
+     */
+    static ChunkedTransfer ofBytes(byte[] bytes) {
+        return new ChunkedTransfer(bytes, null, null, bytes.length);
+    }
+
+    /**
+     * Create a transfer backed by a file. The file is deleted when the transfer is closed, or if this
+     * function fails.
+     *
+     * @param file  the file whose content should be transferred
+     * @return a transfer of the content of the provided file
+     * @throws IOException when an error occurs while opening the file
+     */
+    static ChunkedTransfer ofFile(Path file) throws IOException {
+        try {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            openFiles.add(file);
+            return new ChunkedTransfer(null, file, channel, channel.size());
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    /**
+     * Create an empty file in the default temporary directory, to be given to {@link #ofFile(Path)}.
+     *
+     * @param suffix  the suffix of the name of the file
+     * @return the path of the created file
+     * @throws IOException when an error occurs while creating the file
+     */
+    static Path createTempFile(String suffix) throws IOException {
+        return Files.createTempFile(TEMP_FILE_PREFIX, suffix);
+    }
+
+    /**
+     * Delete the files created by {@link #createTempFile(String)} that don't belong to an open transfer of this
+     * process and that were not modified for {@link #LEFTOVER_FILE_AGE_MILLIS}. Such files are left by processes
+     * that didn't exit normally. Errors are logged and not thrown.
+     */
+    static void deleteLeftoverFiles() {
+        Path directory = Path.of(System.getProperty("java.io.tmpdir"));
+        long maxModifiedTime = System.currentTimeMillis() - LEFTOVER_FILE_AGE_MILLIS;
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, TEMP_FILE_PREFIX + "*")) {
+            for (Path file: files) {
+                try {
+                    if (!openFiles.contains(file) && Files.isRegularFile(file) &&
+                            Files.getLastModifiedTime(file).toMillis() < maxModifiedTime) {
+                        Files.deleteIfExists(file);
+                        logger.debug("Leftover file {} deleted", file);
+                    }
+                } catch (IOException e) {
+                    logger.debug("Cannot delete leftover file {}", file, e);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Cannot list leftover files of {}", directory, e);
+        }
+    }
+
+    /**
+     * @return the total number of bytes of this transfer
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return the number of bytes already returned by {@link #nextChunk(int)}
+     */
+    public synchronized long getPosition() {
+        return position;
+    }
+
+    /**
+     * @return whether {@link #nextChunk(int)} can return more bytes
+     */
+    public synchronized boolean hasNext() {
+        return !closed && position < size;
+    }
+
+    /**
+     * Read the next bytes of this transfer.
+     *
+     * @param maxBytes  the maximum number of bytes to return
+     * @return the next bytes of this transfer. The returned array contains at most the provided number
+     * of bytes, and fewer if the end of the transfer is reached
+     * @throws IOException when an error occurs while reading the file backing this transfer
+     * @throws NoSuchElementException if no bytes remain to be read
+     * @throws IllegalArgumentException if the maximum number of bytes is not positive
+     * @throws IllegalStateException if this transfer is closed
+     */
+    public synchronized byte[] nextChunk(int maxBytes) throws IOException {
+        if (!hasNext()) {
+            checkOpen();
+            throw new NoSuchElementException("No bytes remain to be read");
+        }
+
+        byte[] chunk = readChunk(position, maxBytes);
+        position += chunk.length;
+        return chunk;
+    }
+
+    /**
+     * Read bytes of this transfer at any position. This doesn't change the position of {@link #nextChunk(int)},
+     * so it can be used to read different parts of the transfer from different threads or to retry a chunk.
+     *
+     * @param offset  the position of the first byte to read
+     * @param length  the maximum number of bytes to read
+     * @return the bytes of this transfer starting at the provided offset. The returned array contains at
+     * most the provided number of bytes, and fewer if the end of the transfer is reached
+     * @throws IOException when an error occurs while reading the file backing this transfer
+     * @throws IllegalArgumentException if the offset is not between 0 and {@link #getSize()}, or if the length is not positive
+     * @throws IllegalStateException if this transfer is closed
+     */
+    public synchronized byte[] readChunk(long offset, int length) throws IOException {
+        checkOpen();
+        if (offset < 0 || offset > size) {
+            throw new IllegalArgumentException(String.format("The offset %d is not between 0 and %d", offset, size));
+        }
+        if (length <= 0) {
+            throw new IllegalArgumentException(String.format("The length %d is not positive", length));
+        }
+
+        int chunkLength = (int) Math.min(length, size - offset);
+        if (bytes != null) {
+            return Arrays.copyOfRange(bytes, (int) offset, (int) offset + chunkLength);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(chunkLength);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException(String.format("Unexpected end of file %s", file));
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Write all bytes of this transfer to a channel, independently of the position of {@link #nextChunk(int)}.
+     * File-backed transfers use {@link FileChannel#transferTo(long, long, WritableByteChannel)}, which lets the
+     * operating system copy the file to the channel without going through the Java heap.
+     *
+     * @param target  the channel to write to
+     * @return the number of bytes written
+     * @throws IOException when an error occurs while reading this transfer or writing to the channel
+     * @throws IllegalStateException if this transfer is closed
+     */
+    synchronized long transferTo(WritableByteChannel target) throws IOException {
+        checkOpen();
+
+        if (bytes != null) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                target.write(buffer);
+            }
+        } else {
+            long transferred = 0;
+            while (transferred < size) {
+                transferred += channel.transferTo(transferred, size - transferred, target);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return whether this transfer is closed
+     */
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Release the memory or delete the file backing this transfer. No more bytes can be read after calling
+     * this function. This has no effect if the transfer is already closed.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        bytes = null;
+
+        if (channel != null) {
+            try {
+                channel.close();
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                logger.warn("Cannot delete {}", file, e);
+            }
+            openFiles.remove(file);
+            channel = null;
+        }
+    }
+
+    private static void deleteOpenFiles() {
+        for (Path file: openFiles) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                logger.debug("Cannot delete {}", file, e);
+            }
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("This transfer is closed");
+        }
+    }
+}
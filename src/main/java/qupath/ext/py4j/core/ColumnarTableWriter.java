@@ -0,0 +1,239 @@
+package qupath.ext.py4j.core;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import qupath.lib.io.GsonTools;
+import qupath.lib.objects.PathObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Write the measurements of PathObjects to a columnar binary file, which can be memory-mapped and read
+ * without copy from Python.
+ * <p>
+ * The file is laid out as follows (all integers are little-endian):
+ * <ol>
+ *     <li>The {@link #MAGIC} bytes.</li>
+ *     <li>The columns, one after the other, each starting at an offset that is a multiple of {@link #ALIGNMENT}.</li>
+ *     <li>A UTF-8 encoded JSON footer.</li>
+ *     <li>The length of the footer in bytes, as an unsigned 32-bit integer.</li>
+ *     <li>The {@link #MAGIC} bytes again.</li>
+ * </ol>
+ * The footer contains the "version" of the format, the "rowCount", and the list of "columns". Each column has a
+ * "name", a "type", the NumPy "dtype" of its values, its "offset" and "length" in bytes, and its "compression".
+ * The following types are used:
+ * <ul>
+ *     <li>"uuid": the object IDs, 16 bytes per row (see {@link QuPathEntryPoint#getObjectIdBytes(Collection)}).</li>
+ *     <li>"float64": little-endian 64-bit floating point numbers (centroids and measurements), NaN if missing.</li>
+ *     <li>"dictionary": little-endian 32-bit integer indices in the "dictionary" array of strings of the column
+ *     (object types, names, and classifications), -1 if missing.</li>
+ * </ul>
+ * The compression is "none", or "deflate" if the column was compressed (and must be decompressed with
+ * Python's {@code zlib.decompress} before being read). Compression is only kept for columns it makes noticeably
+ * smaller, such as dictionary columns with few distinct values.
+ * <p>
+ * From Python, an uncompressed column can be read with:
+ * <pre>{@code
+ * data = numpy.memmap(path, mode="r")
+ * footer_length = int.from_bytes(data[-12:-8], "little")
+ * footer = json.loads(bytes(data[-12 - footer_length:-12]))
+ * column = footer["columns"][0]
+ * values = numpy.frombuffer(data, dtype=column["dtype"], count=footer["rowCount"], offset=column["offset"])
+ * }</pre>
+ */
+class ColumnarTableWriter {
+
+    /**
+     * The bytes at the start and at the end of a columnar file.
+     */
+    public static final byte[] MAGIC = "QPCOL\0\0\1".getBytes(StandardCharsets.US_ASCII);
+    /**
+     * The version of the format described by this class.
+     */
+    public static final int VERSION = 1;
+    /**
+     * The alignment in bytes of the start of each column.
+     */
+    public static final int ALIGNMENT = 64;
+    // Compressed columns are only kept if they are smaller than this fraction of the uncompressed columns
+    private static final double MAX_COMPRESSION_RATIO = 0.9;
+
+    private ColumnarTableWriter() {
+        throw new AssertionError("This class is not instantiable.");
+    }
+
+    /**
+     * Write the IDs, types, names, classifications, centroids, and measurements of PathObjects to a columnar file.
+     * Columns are computed and written one by one, so that the whole table is never in memory.
+     *
+     * @param pathObjects  the PathObjects to write, one row per object in the iteration order of the collection
+     * @param measurementNames  the names of the measurements to write, one column per name
+     * @param file  the file to write. It is replaced if it already exists
+     * @param compress  whether to compress columns with the deflate algorithm when it makes them smaller.
+     *                  Compressed columns cannot be memory-mapped
+     * @return the number of bytes written
+     * @throws IOException when an error occurs while writing the file
+     */
+    public static long write(
+            Collection<? extends PathObject> pathObjects,
+            List<String> measurementNames,
+            Path file,
+            boolean compress
+    ) throws IOException {
+        List<? extends PathObject> objects = List.copyOf(pathObjects);
+        JsonArray columns = new JsonArray();
+
+        try (FileChannel channel = FileChannel.open(
+                file,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE
+        )) {
+            writeFully(channel, ByteBuffer.wrap(MAGIC));
+
+            columns.add(writeColumn(channel, "Object ID", "uuid", "V16", BinaryTools.toBytes(
+                    objects.stream().map(PathObject::getID).toList()
+            ), null, compress));
+            columns.add(writeDictionaryColumn(channel, "Object type", objects, ColumnarTableWriter::getObjectType, compress));
+            columns.add(writeDictionaryColumn(channel, "Name", objects, PathObject::getName, compress));
+            columns.add(writeDictionaryColumn(
+                    channel,
+                    "Classification",
+                    objects,
+                    p -> p.getPathClass() == null ? null : p.getPathClass().toString(),
+                    compress
+            ));
+            columns.add(writeFloatColumn(channel, "Centroid X", objects.stream()
+                    .mapToDouble(p -> p.hasROI() ? p.getROI().getCentroidX() : Double.NaN)
+                    .toArray(), compress));
+            columns.add(writeFloatColumn(channel, "Centroid Y", objects.stream()
+                    .mapToDouble(p -> p.hasROI() ? p.getROI().getCentroidY() : Double.NaN)
+                    .toArray(), compress));
+            for (String name: measurementNames) {
+                columns.add(writeFloatColumn(channel, name, QuPathEntryPoint.getMeasurementArrays(objects, List.of(name))[0], compress));
+            }
+
+            JsonObject footer = new JsonObject();
+            footer.addProperty("version", VERSION);
+            footer.addProperty("rowCount", objects.size());
+            footer.add("columns", columns);
+            byte[] footerBytes = GsonTools.getInstance().toJson(footer).getBytes(StandardCharsets.UTF_8);
+
+            writeFully(channel, ByteBuffer.wrap(footerBytes));
+            writeFully(channel, ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).putInt(footerBytes.length).flip());
+            writeFully(channel, ByteBuffer.wrap(MAGIC));
+
+            return channel.position();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    private static JsonObject writeFloatColumn(FileChannel channel, String name, double[] values, boolean compress) throws IOException {
+        return writeColumn(channel, name, "float64", "<f8", BinaryTools.toBytes(values), null, compress);
+    }
+
+    private static JsonObject writeDictionaryColumn(
+            FileChannel channel,
+            String name,
+            List<? extends PathObject> objects,
+            Function<PathObject, String> valueExtractor,
+            boolean compress
+    ) throws IOException {
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        int[] indices = new int[objects.size()];
+
+        for (int i = 0; i < indices.length; i++) {
+            String value = valueExtractor.apply(objects.get(i));
+            indices[i] = value == null ? -1 : dictionary.computeIfAbsent(value, v -> dictionary.size());
+        }
+
+        JsonArray dictionaryJson = new JsonArray();
+        dictionary.keySet().forEach(dictionaryJson::add);
+        return writeColumn(channel, name, "dictionary", "<i4", BinaryTools.toBytes(indices), dictionaryJson, compress);
+    }
+
+    private static JsonObject writeColumn(
+            FileChannel channel,
+            String name,
+            String type,
+            String dtype,
+            byte[] values,
+            JsonArray dictionary,
+            boolean compress
+    ) throws IOException {
+        byte[] data = values;
+        String compression = "none";
+        if (compress && values.length > 0) {
+            byte[] compressed = deflate(values);
+            if (compressed.length < values.length * MAX_COMPRESSION_RATIO) {
+                data = compressed;
+                compression = "deflate";
+            }
+        }
+
+        // Pad with zeros so that the column starts at an aligned offset
+        long offset = (channel.position() + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+        writeFully(channel, ByteBuffer.allocate((int) (offset - channel.position())));
+        writeFully(channel, ByteBuffer.wrap(data));
+
+        JsonObject column = new JsonObject();
+        column.addProperty("name", name);
+        column.addProperty("type", type);
+        column.addProperty("dtype", dtype);
+        column.addProperty("offset", offset);
+        column.addProperty("length", data.length);
+        column.addProperty("compression", compression);
+        if (dictionary != null) {
+            column.add("dictionary", dictionary);
+        }
+        return column;
+    }
+
+    private static byte[] deflate(byte[] values) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflaterOutputStream = new DeflaterOutputStream(outputStream)) {
+            deflaterOutputStream.write(values);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static String getObjectType(PathObject pathObject) {
+        if (pathObject.isCell()) {
+            return "Cell";
+        } else if (pathObject.isTile()) {
+            return "Tile";
+        } else if (pathObject.isDetection()) {
+            return "Detection";
+        } else if (pathObject.isAnnotation()) {
+            return "Annotation";
+        } else if (pathObject.isTMACore()) {
+            return "TMA core";
+        } else if (pathObject.isRootObject()) {
+            return "Root";
+        } else {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package qupath.ext.py4j.core;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qupath.lib.images.ImageData;
+import qupath.lib.images.servers.ServerTools;
+import qupath.lib.io.GsonTools;
+import qupath.lib.objects.PathObject;
+import qupath.lib.objects.hierarchy.events.PathObjectHierarchyEvent;
+import qupath.lib.objects.hierarchy.events.PathObjectHierarchyListener;
+import qupath.lib.objects.hierarchy.events.PathObjectSelectionListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deliver QuPath events to {@link QuPathEventListener QuPathEventListeners} in batches, each listener
+ * on its own dedicated thread.
+ * <p>
+ * Publishing an event never blocks: events are put in a bounded queue per listener, where events of the same
+ * type and key are coalesced (the last properties are kept, and the number of occurrences is counted). When more
+ * than {@link #MAX_PENDING_EVENTS} events are waiting for a listener, the oldest ones are dropped. Each dispatching
+ * thread waits {@link #BATCH_DELAY_MILLIS} after the first event of a batch, so that bursts of events are delivered
+ * together. Since listeners don't share threads, a slow or unresponsive listener only delays its own events.
+ * <p>
+ * A listener that throws an exception (for example because its Python process stopped) is removed.
+ * <p>
+ * This class is thread-safe.
+ */
+class EventDispatcher {
+
+    /**
+     * The maximum number of events waiting to be delivered to a listener.
+     */
+    public static final int MAX_PENDING_EVENTS = 1000;
+    /**
+     * The number of milliseconds to wait for more events before delivering a batch.
+     */
+    public static final long BATCH_DELAY_MILLIS = 50;
+    private static final Logger logger = LoggerFactory.getLogger(EventDispatcher.class);
+    private final List<Delivery> deliveries = new CopyOnWriteArrayList<>();
+    private final AtomicLong numUncoalescedEvents = new AtomicLong(0);
+    private final PathObjectHierarchyListener hierarchyListener = this::hierarchyChanged;
+    private final PathObjectSelectionListener selectionListener = this::selectionChanged;
+    // Never held while publishing events, so that hierarchy listeners are never added or removed while publishing
+    private final Object imageDataLock = new Object();
+    private ImageData<?> imageData;
+
+    /**
+     * Add a listener and start its dispatching thread.
+     *
+     * @param listener  the listener to add
+     */
+    public void addListener(QuPathEventListener listener) {
+        Delivery delivery = new Delivery(listener);
+        deliveries.add(delivery);
+        delivery.thread.start();
+    }
+
+    /**
+     * Remove a listener and stop its dispatching thread. Events waiting to be delivered to this listener are
+     * dropped. This has no effect if the listener was not added.
+     *
+     * @param listener  the listener to remove
+     */
+    public void removeListener(QuPathEventListener listener) {
+        // Listeners are compared by identity, as the equality of Python objects may require calling Python
+        for (Delivery delivery: deliveries) {
+            if (delivery.listener == listener) {
+                remove(delivery);
+            }
+        }
+    }
+
+    /**
+     * @return whether at least one listener is registered
+     */
+    public boolean hasListeners() {
+        return !deliveries.isEmpty();
+    }
+
+    /**
+     * Queue an event to be delivered to the listeners. This has no effect if there is no listener.
+     *
+     * @param type  the type of the event
+     * @param key  events with the same type and key are coalesced, or null to never coalesce this event
+     * @param properties  properties of the event, or null if there are none
+     */
+    public void publish(String type, String key, JsonObject properties) {
+        if (deliveries.isEmpty()) {
+            return;
+        }
+
+        String pendingKey = key == null ? type + "#" + numUncoalescedEvents.getAndIncrement() : type + ":" + key;
+        for (Delivery delivery: deliveries) {
+            delivery.publish(pendingKey, type, properties);
+        }
+    }
+
+    /**
+     * Publish an "imageClosed" event for the previous image (if any) and an "imageOpened" event for the
+     * provided image (if not null), and start publishing "hierarchyChanged" and "selectionChanged" events
+     * of the provided image instead of the previous one.
+     *
+     * @param imageData  the image that was opened, or null if the previous image was closed without
+     *                   opening another one
+     */
+    public void setImageData(ImageData<?> imageData) {
+        ImageData<?> previousImageData;
+        synchronized (imageDataLock) {
+            if (this.imageData == imageData) {
+                return;
+            }
+            previousImageData = this.imageData;
+
+            if (previousImageData != null) {
+                previousImageData.getHierarchy().removeListener(hierarchyListener);
+                previousImageData.getHierarchy().getSelectionModel().removePathObjectSelectionListener(selectionListener);
+            }
+            this.imageData = imageData;
+            if (imageData != null) {
+                imageData.getHierarchy().addListener(hierarchyListener);
+                imageData.getHierarchy().getSelectionModel().addPathObjectSelectionListener(selectionListener);
+            }
+        }
+
+        if (previousImageData != null) {
+            publish("imageClosed", "", getImageProperties(previousImageData));
+        }
+        if (imageData != null) {
+            publish("imageOpened", "", getImageProperties(imageData));
+        }
+    }
+
+    private static JsonObject getImageProperties(ImageData<?> imageData) {
+        JsonObject properties = new JsonObject();
+        properties.addProperty(
+                "imageName",
+                imageData.getServer() == null ? null : ServerTools.getDisplayableImageName(imageData.getServer())
+        );
+        return properties;
+    }
+
+    private void hierarchyChanged(PathObjectHierarchyEvent event) {
+        if (event.isChanging()) {
+            return;
+        }
+
+        JsonObject properties = new JsonObject();
+        properties.addProperty("structural", event.isStructureChangeEvent());
+        publish("hierarchyChanged", String.valueOf(event.isStructureChangeEvent()), properties);
+    }
+
+    private void selectionChanged(PathObject pathObjectSelected, PathObject previousObject, Collection<PathObject> allSelected) {
+        JsonObject properties = new JsonObject();
+        properties.addProperty("selectedId", pathObjectSelected == null ? null : pathObjectSelected.getID().toString());
+        properties.addProperty("numSelected", allSelected == null ? 0 : allSelected.size());
+        publish("selectionChanged", "", properties);
+    }
+
+    private void remove(Delivery delivery) {
+        deliveries.remove(delivery);
+        delivery.thread.interrupt();
+    }
+
+    private class Delivery {
+
+        private final Map<String, JsonObject> pendingEvents = new LinkedHashMap<>();
+        private final QuPathEventListener listener;
+        private final Thread thread;
+        private int numDropped = 0;
+
+        private Delivery(QuPathEventListener listener) {
+            this.listener = listener;
+            this.thread = new Thread(this::dispatchEvents, "py4j-event-dispatcher");
+            this.thread.setDaemon(true);
+        }
+
+        private synchronized void publish(String pendingKey, String type, JsonObject properties) {
+            // The previous event is removed, so that the coalesced event keeps the order of the last occurrence
+            JsonObject previousEvent = pendingEvents.remove(pendingKey);
+
+            JsonObject event = properties == null ? new JsonObject() : properties.deepCopy();
+            event.addProperty("type", type);
+            event.addProperty("count", previousEvent == null ? 1 : previousEvent.get("count").getAsInt() + 1);
+
+            if (pendingEvents.size() >= MAX_PENDING_EVENTS) {
+                Iterator<String> iterator = pendingEvents.keySet().iterator();
+                iterator.next();
+                iterator.remove();
+                numDropped++;
+            }
+            pendingEvents.put(pendingKey, event);
+            notifyAll();
+        }
+
+        private void dispatchEvents() {
+            while (deliveries.contains(this)) {
+                List<JsonObject> events;
+                int dropped;
+
+                try {
+                    synchronized (this) {
+                        while (pendingEvents.isEmpty()) {
+                            wait();
+                        }
+                    }
+                    // Let bursts of events accumulate, so that they are coalesced or delivered together
+                    Thread.sleep(BATCH_DELAY_MILLIS);
+                } catch (InterruptedException e) {
+                    logger.debug("Event dispatcher of {} interrupted", listener, e);
+                    return;
+                }
+
+                synchronized (this) {
+                    events = new ArrayList<>(pendingEvents.values());
+                    dropped = numDropped;
+                    pendingEvents.clear();
+                    numDropped = 0;
+                }
+
+                JsonArray eventsJson = new JsonArray();
+                events.forEach(eventsJson::add);
+                JsonObject batch = new JsonObject();
+                batch.add("events", eventsJson);
+                batch.addProperty("dropped", dropped);
+
+                try {
+                    listener.onEvents(GsonTools.getInstance().toJson(batch));
+                } catch (Exception e) {
+                    logger.warn("Error when delivering events to {}. It will not receive events anymore", listener, e);
+                    remove(this);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package qupath.ext.py4j.core;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import qupath.lib.io.GsonTools;
+import qupath.lib.objects.PathObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A cursor that converts PathObjects to GeoJSON FeatureCollections batch by batch, on demand.
+ * <p>
+ * Only one batch is converted at a time, and it is written incrementally to a buffer reused between batches.
+ * This means that the memory used by the conversion is bounded by the size of a batch, whatever the number
+ * of objects to convert.
+ * <p>
+ * This class is thread-safe.
+ */
+public class FeatureCursor implements AutoCloseable {
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+    private final Gson gson = GsonTools.getInstance();
+    private final int size;
+    private final int batchSize;
+    private Iterator<? extends PathObject> iterator;
+    private ByteArrayOutputStream buffer = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+    private int position = 0;
+
+    /**
+     * Create the cursor. The provided collection is copied, so it can be modified after calling this function.
+     *
+     * @param pathObjects  the PathObjects to convert
+     * @param batchSize  the maximum number of objects of each batch
+     * @throws IllegalArgumentException if the batch size is not positive
+     */
+    public FeatureCursor(Collection<? extends PathObject> pathObjects, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException(String.format("The batch size %d is not positive", batchSize));
+        }
+
+        List<? extends PathObject> objects = new ArrayList<>(pathObjects);
+        this.size = objects.size();
+        this.batchSize = batchSize;
+        this.iterator = objects.iterator();
+    }
+
+    /**
+     * @return the total number of objects this cursor converts
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the number of objects that have already been converted
+     */
+    public synchronized int getPosition() {
+        return position;
+    }
+
+    /**
+     * @return whether some objects remain to be converted
+     */
+    public synchronized boolean hasNext() {
+        return iterator != null && iterator.hasNext();
+    }
+
+    /**
+     * Convert the next batch of objects to a GeoJSON FeatureCollection.
+     *
+     * @return a UTF-8 encoded GeoJSON FeatureCollection containing the next batch of objects
+     * @throws NoSuchElementException if no objects remain to be converted
+     */
+    public synchronized byte[] nextBatchBytes() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No objects remain to be converted");
+        }
+
+        buffer.reset();
+        try (Writer writer = new OutputStreamWriter(buffer, StandardCharsets.UTF_8)) {
+            position += writeFeatureCollection(gson, iterator, batchSize, writer);
+        } catch (IOException e) {
+            // Not expected, as the writer writes to memory
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Same as {@link #nextBatchBytes()}, but returned as a string.
+     *
+     * @return a GeoJSON FeatureCollection containing the next batch of objects
+     * @throws NoSuchElementException if no objects remain to be converted
+     */
+    public synchronized String nextBatch() {
+        return new String(nextBatchBytes(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Release the resources used by this cursor. No more batches can be retrieved after calling this function.
+     */
+    @Override
+    public synchronized void close() {
+        iterator = Collections.emptyIterator();
+        buffer = new ByteArrayOutputStream(0);
+    }
+
+    /**
+     * Write a GeoJSON FeatureCollection incrementally.
+     *
+     * @param gson  the Gson instance to use to serialize PathObjects
+     * @param pathObjects  an iterator over the PathObjects to write
+     * @param maxObjects  the maximum number of objects to take from the iterator
+     * @param writer  the writer to write to. It is not closed by this function
+     * @return the number of objects written
+     * @throws IOException when an error occurs while writing
+     */
+    static int writeFeatureCollection(Gson gson, Iterator<? extends PathObject> pathObjects, int maxObjects, Writer writer) throws IOException {
+        JsonWriter jsonWriter = gson.newJsonWriter(writer);
+
+        jsonWriter.beginObject();
+        jsonWriter.name("type").value("FeatureCollection");
+        jsonWriter.name("features");
+        jsonWriter.beginArray();
+
+        int nObjects = 0;
+        while (nObjects < maxObjects && pathObjects.hasNext()) {
+            gson.toJson(pathObjects.next(), PathObject.class, jsonWriter);
+            nObjects++;
+        }
+
+        jsonWriter.endArray();
+        jsonWriter.endObject();
+        jsonWriter.flush();
+
+        return nObjects;
+    }
+}
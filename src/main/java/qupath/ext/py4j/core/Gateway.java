@@ -0,0 +1,212 @@
+package qupath.ext.py4j.core;
+
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import py4j.GatewayServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+
+/**
+ * A named {@link GatewayServer} managed by a {@link GatewayManager}, with its own port,
+ * token, and entry point, optionally a {@link BulkDataServer} on a second port, and optionally
+ * a callback client calling Python objects (such as {@link QuPathEventListener QuPathEventListeners}).
+ */
+public class Gateway {
+
+    private static final Logger logger = LoggerFactory.getLogger(Gateway.class);
+    private static final int BULK_DATA_THREADS = 4;
+    private final BooleanProperty running = new SimpleBooleanProperty(false);
+    private final IntegerProperty numConnections = new SimpleIntegerProperty(0);
+    private final String name;
+    private final int port;
+    private final boolean authenticated;
+    private final int maxConnections;
+    private final int callbackPort;
+    private final Object entryPoint;
+    private final GatewayServer server;
+    private final BulkDataServer bulkDataServer;
+    private final BulkDataTickets bulkDataTickets;
+
+    /**
+     * Create and start the gateway.
+     *
+     * @param name  the name of the gateway
+     * @param port  the port the gateway should use, or a negative number to use the default port
+     * @param token  the token the gateway should accept, or null or blank to not use authentication
+     * @param entryPoint  the entry point Python clients of this gateway should access
+     * @param options  the maximum number of connections, and the ports of the bulk data server and of the
+     *                 callback server of Python clients
+     * @throws UncheckedIOException if the bulk data server cannot be started
+     */
+    Gateway(String name, int port, String token, Object entryPoint, GatewayOptions options) {
+        int bulkDataPort = options.getBulkDataPort();
+        int callbackPort = options.getCallbackPort();
+
+        this.name = name;
+        this.port = port > 0 ? port : GatewayServer.DEFAULT_PORT;
+        this.authenticated = token != null && !token.isBlank();
+        this.entryPoint = entryPoint;
+        this.maxConnections = options.getMaxConnections();
+        if (callbackPort < 0) {
+            this.callbackPort = -1;
+        } else {
+            this.callbackPort = callbackPort > 0 ? callbackPort : GatewayServer.DEFAULT_PYTHON_PORT;
+        }
+
+        if (bulkDataPort >= 0) {
+            // Each gateway has its own tickets, so that they can only be fetched with the token of this gateway
+            bulkDataTickets = new BulkDataTickets();
+            try {
+                bulkDataServer = new BulkDataServer(bulkDataPort, token, bulkDataTickets, BULK_DATA_THREADS);
+            } catch (IOException e) {
+                bulkDataTickets.close();
+                throw new UncheckedIOException(e);
+            }
+            logger.debug("Bulk data server of {} listening on port {}", name, bulkDataServer.getPort());
+        } else {
+            bulkDataServer = null;
+            bulkDataTickets = null;
+        }
+        if (entryPoint instanceof QuPathEntryPoint quPathEntryPoint) {
+            quPathEntryPoint.setBulkDataServer(getBulkDataPort(), bulkDataTickets);
+        }
+
+        GatewayServer.GatewayServerBuilder builder = new GatewayServer.GatewayServerBuilder()
+                .entryPoint(entryPoint)
+                .javaPort(this.port)
+                .authToken(authenticated ? token : null);
+        if (this.callbackPort > 0) {
+            // Python callback servers started with the same token require it
+            builder.callbackClient(this.callbackPort, InetAddress.getLoopbackAddress(), authenticated ? token : null);
+        }
+        server = builder.build();
+
+        server.addListener(new Py4JListener(
+                running -> {
+                    synchronized (this) {
+                        this.running.set(running);
+                    }
+                },
+                numConnections -> {
+                    synchronized (this) {
+                        this.numConnections.set(numConnections);
+                    }
+                },
+                this.maxConnections
+        ));
+        try {
+            server.start();
+        } catch (RuntimeException e) {
+            closeBulkDataServer();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the name of this gateway
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the port this gateway uses
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * @return whether this gateway requires an authentication token
+     */
+    public boolean isAuthenticated() {
+        return authenticated;
+    }
+
+    /**
+     * @return the maximum number of Python clients that can be connected at the same time,
+     * or 0 if connections are not limited
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * @return the port of the bulk data server of this gateway, or -1 if this gateway doesn't have a bulk data server
+     */
+    public int getBulkDataPort() {
+        return bulkDataServer == null ? -1 : bulkDataServer.getPort();
+    }
+
+    /**
+     * @return the port of the callback server of Python clients configured for this gateway, or -1 if the
+     * default configuration of Py4J is used
+     */
+    public int getCallbackPort() {
+        return callbackPort;
+    }
+
+    /**
+     * @return the entry point Python clients of this gateway access
+     */
+    public Object getEntryPoint() {
+        return entryPoint;
+    }
+
+    /**
+     * @return a property indicating if this gateway is running. This property may be updated from any thread
+     */
+    public ReadOnlyBooleanProperty isRunning() {
+        return running;
+    }
+
+    /**
+     * @return a property containing the number of Python clients currently connected to this gateway.
+     * This property may be updated from any thread
+     */
+    public ReadOnlyIntegerProperty getNumConnections() {
+        return numConnections;
+    }
+
+    /**
+     * Stop this gateway. This has no effect if it is already stopped.
+     */
+    void stop() {
+        server.shutdown();
+        closeBulkDataServer();
+
+        synchronized (this) {
+            running.set(false);
+            numConnections.set(0);
+        }
+    }
+
+    private void closeBulkDataServer() {
+        if (bulkDataServer != null) {
+            bulkDataServer.close();
+            bulkDataTickets.close();
+        }
+        if (entryPoint instanceof QuPathEntryPoint quPathEntryPoint) {
+            quPathEntryPoint.setBulkDataServer(-1, null);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Gateway{" +
+                "name='" + name + '\'' +
+                ", port=" + port +
+                ", authenticated=" + authenticated +
+                ", maxConnections=" + maxConnections +
+                ", running=" + running.get() +
+                '}';
+    }
+}
@@ -3,59 +3,224 @@ package qupath.ext.py4j.core;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.ReadOnlyBooleanProperty;
 import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.value.ChangeListener;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import py4j.GatewayServer;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 /**
- * Start, stop, and manage the state of a {@link GatewayServer}.
+ * Start, stop, and manage the state of several named {@link GatewayServer GatewayServers}
+ * (see {@link Gateway}). Each gateway has its own port, token, and entry point object, so that
+ * different Python clients can connect with different credentials and be stopped independently.
+ * <p>
+ * Gateways are not isolated from each other though: the state of {@link QuPathEntryPoint} is static,
+ * and is therefore shared by the clients of all gateways. This includes the image cache, the limits
+ * and statistics of heavy calls, the asynchronous jobs, and the event listeners. Only bulk data tickets
+ * are specific to each gateway.
  */
 public class GatewayManager {
 
+    /**
+     * The name of the gateway used by {@link #start(int, String)}.
+     */
+    public static final String DEFAULT_GATEWAY_NAME = "default";
     private final BooleanProperty running = new SimpleBooleanProperty(false);
-    private GatewayServer server;
+    // A copy-on-write list can be iterated while gateways change state from any thread
+    private final ObservableList<Gateway> gateways = FXCollections.observableList(new CopyOnWriteArrayList<>());
+    private final ObservableList<Gateway> gatewaysImmutable = FXCollections.unmodifiableObservableList(gateways);
+    private final ChangeListener<Boolean> gatewayRunningListener = (p, o, n) -> updateRunning();
 
     /**
-     * Start a new {@link GatewayServer} with the provided parameters. If a
-     * {@link GatewayServer} is already running, it is stopped first.
+     * Create the manager. Temporary files left by the transfers of previous processes are deleted
+     * (see {@link ChunkedTransfer#deleteLeftoverFiles()}).
+     */
+    public GatewayManager() {
+        ChunkedTransfer.deleteLeftoverFiles();
+    }
+
+    /**
+     * Start a new {@link GatewayServer} with the provided parameters, named {@link #DEFAULT_GATEWAY_NAME}.
+     * If this gateway is already running, it is stopped first.
      *
      * @param port the port the {@link GatewayServer} should use, or a negative number to use the default port
      * @param token the token the {@link GatewayServer} should accept
      */
     public void start(int port, String token) {
-        stop();
+        start(DEFAULT_GATEWAY_NAME, port, token);
+    }
 
-        server = new GatewayServer.GatewayServerBuilder()
-                .entryPoint(new QuPathEntryPoint())
-                .javaPort(port > 0 ? port : GatewayServer.DEFAULT_PORT)
-                .authToken(token == null || token.isBlank() ? null : token)
-                .build();
+    /**
+     * Start a new named {@link GatewayServer} with the provided parameters, the {@link GatewayOptions#DEFAULT default
+     * options}, and a new {@link QuPathEntryPoint}. If a gateway with the same name is already running, it is stopped first.
+     *
+     * @param name the name of the gateway
+     * @param port the port the {@link GatewayServer} should use, or a negative number to use the default port
+     * @param token the token the {@link GatewayServer} should accept
+     * @return the started gateway
+     * @throws IllegalArgumentException if another gateway managed by this class already uses the provided port
+     */
+    public Gateway start(String name, int port, String token) {
+        return start(name, port, token, GatewayOptions.DEFAULT);
+    }
 
-        server.addListener(new Py4JListener(running -> {
-            synchronized (this) {
-                this.running.set(running);
-            }
-        }));
-        server.start();
+    /**
+     * Start a new named {@link GatewayServer} with the provided parameters and a new {@link QuPathEntryPoint}.
+     * If a gateway with the same name is already running, it is stopped first.
+     *
+     * @param name the name of the gateway
+     * @param port the port the {@link GatewayServer} should use, or a negative number to use the default port
+     * @param token the token the {@link GatewayServer} should accept
+     * @param options the optional parameters of the gateway (maximum number of connections, bulk data server,
+     *                and callback client)
+     * @return the started gateway
+     * @throws IllegalArgumentException if another gateway managed by this class already uses the provided port
+     * @throws java.io.UncheckedIOException if the bulk data server cannot be started
+     */
+    public Gateway start(String name, int port, String token, GatewayOptions options) {
+        return start(name, port, token, new QuPathEntryPoint(), options);
     }
 
     /**
-     * Stop the currently running {@link GatewayServer}.
+     * Start a new named {@link GatewayServer} with the provided parameters.
+     * If a gateway with the same name is already running, it is stopped first.
+     *
+     * @param name the name of the gateway
+     * @param port the port the {@link GatewayServer} should use, or a negative number to use the default port
+     * @param token the token the {@link GatewayServer} should accept
+     * @param entryPoint the entry point Python clients of this gateway should access
+     * @param options the optional parameters of the gateway (maximum number of connections, bulk data server,
+     *                and callback client)
+     * @return the started gateway
+     * @throws IllegalArgumentException if another gateway managed by this class already uses the provided port
+     * or entry point
+     * @throws java.io.UncheckedIOException if the bulk data server cannot be started
      */
-    public void stop() {
-        if (server != null) {
-            server.shutdown();
-            server = null;
+    public synchronized Gateway start(String name, int port, String token, Object entryPoint, GatewayOptions options) {
+        // The gateway being replaced is only stopped once the new one is known to be valid
+        int actualPort = port > 0 ? port : GatewayServer.DEFAULT_PORT;
+        if (gateways.stream().anyMatch(gateway -> gateway.getPort() == actualPort && !gateway.getName().equals(name))) {
+            throw new IllegalArgumentException(String.format("Port %d is already used by another gateway", actualPort));
+        }
+        // The bulk data server of a gateway is set on its entry point, so entry points can't be shared
+        if (gateways.stream().anyMatch(gateway -> gateway.getEntryPoint() == entryPoint && !gateway.getName().equals(name))) {
+            throw new IllegalArgumentException("The entry point is already used by another gateway");
+        }
+
+        stop(name);
+
+        Gateway gateway = new Gateway(name, port, token, entryPoint, options);
+        gateway.isRunning().addListener(gatewayRunningListener);
+        gateways.add(gateway);
+        updateRunning();
 
-            synchronized (this) {
-                running.set(false);
-            }
+        return gateway;
+    }
+
+    /**
+     * Stop all running {@link GatewayServer GatewayServers}.
+     */
+    public synchronized void stop() {
+        for (Gateway gateway: List.copyOf(gateways)) {
+            stop(gateway.getName());
         }
     }
 
     /**
-     * @return a property indicating if a {@link GatewayServer} is running. This
+     * Stop the {@link GatewayServer} with the provided name. This has no effect
+     * if no gateway has this name.
+     *
+     * @param name the name of the gateway to stop
+     */
+    public synchronized void stop(String name) {
+        getGateway(name).ifPresent(gateway -> {
+            gateway.stop();
+            gateway.isRunning().removeListener(gatewayRunningListener);
+            gateways.remove(gateway);
+            updateRunning();
+        });
+    }
+
+    /**
+     * Limit the number of heavy calls (pixel reads, exports, and measurement tables) running at the same time.
+     * <p>
+     * These limits are shared by all gateways (and not set per gateway), because what they protect
+     * (the memory and the processors of this application) is shared as well.
+     *
+     * @param maxConcurrentCalls the maximum number of heavy calls running at the same time, or 0 to not limit calls
+     * @param maxQueuedCalls the maximum number of heavy calls waiting to run before new calls are rejected,
+     *                       or 0 to not limit the queue
+     * @param queueTimeoutMillis the maximum number of milliseconds a heavy call can wait to run before being rejected,
+     *                           or 0 to wait indefinitely
+     * @see QuPathEntryPoint#setHeavyCallLimits(int, int, long)
+     */
+    public void setHeavyCallLimits(int maxConcurrentCalls, int maxQueuedCalls, long queueTimeoutMillis) {
+        QuPathEntryPoint.setHeavyCallLimits(maxConcurrentCalls, maxQueuedCalls, queueTimeoutMillis);
+    }
+
+    /**
+     * @return the maximum number of heavy calls running at the same time, or 0 if calls are not limited
+     */
+    public int getMaxConcurrentHeavyCalls() {
+        return QuPathEntryPoint.getCallLimiter().getMaxConcurrentCalls();
+    }
+
+    /**
+     * @return the maximum number of heavy calls waiting to run, or 0 if the queue is not limited
+     */
+    public int getMaxQueuedHeavyCalls() {
+        return QuPathEntryPoint.getCallLimiter().getMaxQueuedCalls();
+    }
+
+    /**
+     * @return the maximum number of milliseconds a heavy call can wait to run, or 0 if calls wait indefinitely
+     */
+    public long getHeavyCallQueueTimeoutMillis() {
+        return QuPathEntryPoint.getCallLimiter().getQueueTimeoutMillis();
+    }
+
+    /**
+     * @return the statistics on calls made by Python clients of all gateways to {@link QuPathEntryPoint}
+     * @see QuPathEntryPoint#getCallMetrics()
+     */
+    public CallMetrics getCallMetrics() {
+        return QuPathEntryPoint.getCallMetricsRecorder();
+    }
+
+    /**
+     * Get a gateway by name.
+     *
+     * @param name the name of the gateway
+     * @return the gateway with the provided name, or an empty Optional if no gateway has this name
+     */
+    public synchronized Optional<Gateway> getGateway(String name) {
+        return gateways.stream()
+                .filter(gateway -> gateway.getName().equals(name))
+                .findAny();
+    }
+
+    /**
+     * @return an unmodifiable list of the gateways currently managed by this class. This list
+     * may be updated from any thread
+     */
+    public ObservableList<Gateway> getGateways() {
+        return gatewaysImmutable;
+    }
+
+    /**
+     * @return a property indicating if at least one {@link GatewayServer} is running. This
      * property may be updated from any thread
      */
     public ReadOnlyBooleanProperty isRunning() {
         return running;
     }
+
+    private void updateRunning() {
+        synchronized (running) {
+            running.set(gateways.stream().anyMatch(gateway -> gateway.isRunning().get()));
+        }
+    }
 }
@@ -0,0 +1,136 @@
+package qupath.ext.py4j.core;
+
+/**
+ * Optional parameters of a {@link Gateway}, given to {@link GatewayManager#start(String, int, String, GatewayOptions)}.
+ * <p>
+ * Options are created with a {@link Builder}, so that parameters of the same type (such as ports) are named
+ * and can't be swapped by mistake:
+ * <pre>{@code
+ * GatewayOptions options = GatewayOptions.builder()
+ *         .maxConnections(8)
+ *         .bulkDataPort(0)
+ *         .build();
+ * }</pre>
+ * This class is immutable.
+ */
+public final class GatewayOptions {
+
+    /**
+     * The default options: connections are not limited, and neither a bulk data server nor a callback
+     * client is configured.
+     */
+    public static final GatewayOptions DEFAULT = builder().build();
+    private final int maxConnections;
+    private final int bulkDataPort;
+    private final int callbackPort;
+
+    private GatewayOptions(Builder builder) {
+        this.maxConnections = builder.maxConnections;
+        this.bulkDataPort = builder.bulkDataPort;
+        this.callbackPort = builder.callbackPort;
+    }
+
+    /**
+     * @return a new builder initialized with the default options
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the maximum number of Python clients that can be connected to the gateway at the same time,
+     * or 0 if connections are not limited
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * @return the port the bulk data server should use, 0 to use any free port, or -1 to not start a bulk
+     * data server
+     */
+    public int getBulkDataPort() {
+        return bulkDataPort;
+    }
+
+    /**
+     * @return the port of the callback server of Python clients, 0 to use the default Py4J port, or -1 to
+     * keep the default configuration of Py4J
+     */
+    public int getCallbackPort() {
+        return callbackPort;
+    }
+
+    @Override
+    public String toString() {
+        return "GatewayOptions{" +
+                "maxConnections=" + maxConnections +
+                ", bulkDataPort=" + bulkDataPort +
+                ", callbackPort=" + callbackPort +
+                '}';
+    }
+
+    /**
+     * A builder of {@link GatewayOptions}. Options that are not set keep their default value.
+     */
+    public static class Builder {
+
+        private int maxConnections = 0;
+        private int bulkDataPort = -1;
+        private int callbackPort = -1;
+
+        private Builder() {}
+
+        /**
+         * @param maxConnections  the maximum number of Python clients that can be connected to the gateway at the
+         *                        same time, or 0 (the default) to not limit connections. Each connection uses its
+         *                        own thread
+         * @return this builder
+         */
+        public Builder maxConnections(int maxConnections) {
+            this.maxConnections = Math.max(0, maxConnections);
+            return this;
+        }
+
+        /**
+         * Set the port of a bulk data server started with the gateway.
+         * <p>
+         * The bulk data server sends large binary payloads (for example TIFF stacks or GeoJSON exports) without
+         * going through the Py4J text protocol. It uses the same token as the gateway. Python clients can get its
+         * port with {@link QuPathEntryPoint#getBulkDataPort()}, and payloads to fetch with methods returning tickets
+         * (see {@link QuPathEntryPoint#createBulkDataTicket(ChunkedTransfer)}).
+         *
+         * @param bulkDataPort  the port the bulk data server should use, 0 to use any free port, or a negative
+         *                      number (the default) to not start a bulk data server
+         * @return this builder
+         */
+        public Builder bulkDataPort(int bulkDataPort) {
+            this.bulkDataPort = Math.max(-1, bulkDataPort);
+            return this;
+        }
+
+        /**
+         * Set the port of the callback server of Python clients.
+         * <p>
+         * The callback client lets QuPath call Python objects, such as the listeners registered with
+         * {@link QuPathEntryPoint#addEventListener(QuPathEventListener)}. It connects to the callback server started
+         * by the Python client on the local host, and sends the same token as the gateway.
+         *
+         * @param callbackPort  the port of the callback server of Python clients, 0 to use the default Py4J port,
+         *                      or a negative number (the default) to keep the default configuration of Py4J (which
+         *                      doesn't send the token)
+         * @return this builder
+         */
+        public Builder callbackPort(int callbackPort) {
+            this.callbackPort = Math.max(-1, callbackPort);
+            return this;
+        }
+
+        /**
+         * @return new options with the values of this builder
+         */
+        public GatewayOptions build() {
+            return new GatewayOptions(this);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package qupath.ext.py4j.core;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qupath.lib.common.ThreadTools;
+import qupath.lib.objects.PathObject;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A task that creates PathObjects from a GeoJSON representation in the background.
+ * <p>
+ * The GeoJSON representation is read incrementally, feature by feature, and features are converted
+ * in parallel on a dedicated pool of threads (so that the conversion doesn't compete with the common
+ * fork-join pool used by QuPath). The pool has a bounded queue: if features are read faster than they are
+ * converted, the reading thread converts features itself until the queue has some space.
+ * The order of the features is preserved in the result.
+ * <p>
+ * The GeoJSON representation can be a Feature, an array of Features, or a FeatureCollection.
+ * <p>
+ * This class is thread-safe.
+ */
+public class GeoJsonImportTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeoJsonImportTask.class);
+    private static final ThreadFactory threadFactory = ThreadTools.createThreadFactory("py4j-geojson-import-", true);
+    private static final int QUEUE_SIZE_PER_THREAD = 16;
+    private final CompletableFuture<List<PathObject>> result = new CompletableFuture<>();
+    private final AtomicInteger numRead = new AtomicInteger(0);
+    private final AtomicInteger numConverted = new AtomicInteger(0);
+    private final Reader reader;
+    private final ThreadPoolExecutor executor;
+    private volatile boolean cancelled = false;
+
+    /**
+     * Create and start the task.
+     *
+     * @param reader  the reader containing the GeoJSON representation. It is closed once the task is finished
+     * @param nThreads  the number of threads to use to convert features
+     * @throws IllegalArgumentException if the number of threads is not positive
+     */
+    public GeoJsonImportTask(Reader reader, int nThreads) {
+        if (nThreads <= 0) {
+            throw new IllegalArgumentException(String.format("The number of threads %d is not positive", nThreads));
+        }
+
+        this.reader = reader;
+        this.executor = new ThreadPoolExecutor(
+                nThreads,
+                nThreads,
+                0,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(nThreads * QUEUE_SIZE_PER_THREAD),
+                threadFactory,
+                (runnable, pool) -> {
+                    if (pool.isShutdown()) {
+                        throw new RejectedExecutionException("GeoJSON import cancelled");
+                    } else {
+                        runnable.run();
+                    }
+                }
+        );
+
+        threadFactory.newThread(QuPathEntryPoint.getCallMetricsRecorder().attributeToConnection(this::run)).start();
+    }
+
+    /**
+     * @return the number of features read so far
+     */
+    public int getNumRead() {
+        return numRead.get();
+    }
+
+    /**
+     * @return the number of features converted to PathObjects so far
+     */
+    public int getNumConverted() {
+        return numConverted.get();
+    }
+
+    /**
+     * @return whether the task is finished, either because it completed, failed, or was cancelled
+     */
+    public boolean isDone() {
+        return result.isDone();
+    }
+
+    /**
+     * @return whether the task was cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Cancel the task. Features being converted are interrupted, and no more features are read.
+     */
+    public void cancel() {
+        cancelled = true;
+        shutdownExecutor();
+        result.cancel(false);
+    }
+
+    /**
+     * Wait for the task to finish.
+     *
+     * @return the PathObjects created from the GeoJSON representation, in the order of the features
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     * @throws ExecutionException if an error occurred while reading or converting the features
+     * @throws CancellationException if the task was cancelled
+     */
+    public List<PathObject> get() throws InterruptedException, ExecutionException {
+        return result.get();
+    }
+
+    /**
+     * Wait for the task to finish, up to the provided timeout.
+     *
+     * @param timeoutMillis  the maximum number of milliseconds to wait
+     * @return the PathObjects created from the GeoJSON representation, in the order of the features
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     * @throws ExecutionException if an error occurred while reading or converting the features
+     * @throws TimeoutException if the task is not finished before the timeout expires
+     * @throws CancellationException if the task was cancelled
+     */
+    public List<PathObject> get(long timeoutMillis) throws InterruptedException, ExecutionException, TimeoutException {
+        return result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void run() {
+        List<Future<List<PathObject>>> conversions = new ArrayList<>();
+
+        try (JsonReader jsonReader = new JsonReader(reader)) {
+            if (jsonReader.peek() == JsonToken.BEGIN_ARRAY) {
+                readFeatures(jsonReader, conversions);
+            } else if (jsonReader.peek() == JsonToken.BEGIN_OBJECT) {
+                readFeatureOrCollection(jsonReader, conversions);
+            }
+
+            List<PathObject> pathObjects = new ArrayList<>(conversions.size());
+            for (Future<List<PathObject>> conversion: conversions) {
+                pathObjects.addAll(conversion.get());
+            }
+            result.complete(pathObjects);
+        } catch (InterruptedException | CancellationException e) {
+            logger.debug("GeoJSON import cancelled", e);
+            result.cancel(false);
+        } catch (ExecutionException e) {
+            result.completeExceptionally(e.getCause());
+        } catch (Exception e) {
+            result.completeExceptionally(e);
+        } finally {
+            shutdownExecutor();
+        }
+    }
+
+    private void shutdownExecutor() {
+        // Conversions that didn't start are cancelled, so that nothing waits for them
+        for (Runnable runnable: executor.shutdownNow()) {
+            if (runnable instanceof Future<?> future) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    private void readFeatureOrCollection(JsonReader jsonReader, List<Future<List<PathObject>>> conversions) throws IOException, InterruptedException {
+        // Members other than "features" are kept, in case the object is a single feature
+        JsonObject otherMembers = new JsonObject();
+        boolean featuresFound = false;
+
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            String name = jsonReader.nextName();
+
+            if ("features".equals(name) && jsonReader.peek() == JsonToken.BEGIN_ARRAY) {
+                featuresFound = true;
+                readFeatures(jsonReader, conversions);
+            } else {
+                otherMembers.add(name, JsonParser.parseReader(jsonReader));
+            }
+        }
+        jsonReader.endObject();
+
+        if (!featuresFound) {
+            submit(otherMembers, conversions);
+        }
+    }
+
+    private void readFeatures(JsonReader jsonReader, List<Future<List<PathObject>>> conversions) throws IOException, InterruptedException {
+        jsonReader.beginArray();
+        while (jsonReader.hasNext()) {
+            submit(JsonParser.parseReader(jsonReader), conversions);
+        }
+        jsonReader.endArray();
+    }
+
+    private void submit(JsonElement feature, List<Future<List<PathObject>>> conversions) throws InterruptedException {
+        if (cancelled) {
+            throw new InterruptedException("GeoJSON import cancelled");
+        }
+
+        numRead.incrementAndGet();
+        conversions.add(executor.submit(QuPathEntryPoint.getCallMetricsRecorder().attributeToConnection(() -> {
+            List<PathObject> pathObjects = QuPathEntryPoint.toPathObjects(feature);
+            numConverted.incrementAndGet();
+            return pathObjects;
+        })));
+    }
+}
@@ -0,0 +1,332 @@
+package qupath.ext.py4j.core;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import qupath.lib.images.ImageData;
+import qupath.lib.io.GsonTools;
+import qupath.lib.objects.PathObject;
+import qupath.lib.objects.hierarchy.PathObjectHierarchy;
+import qupath.lib.objects.hierarchy.events.PathObjectHierarchyEvent;
+import qupath.lib.objects.hierarchy.events.PathObjectHierarchyListener;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A record of the objects added to, removed from, and changed in the hierarchy of an image, that clients
+ * poll to mirror the hierarchy without fetching all objects again.
+ * <p>
+ * Each change gets a sequence number. {@link #poll(long)} returns the changes that happened after a
+ * sequence number, coalesced per object (for example, an object added and then changed is only reported
+ * as added, and an object added and then removed is not reported).
+ * <p>
+ * Added, removed, and changed objects are queued as soon as the hierarchy reports them, and recorded when
+ * changes are polled. To keep hierarchy listeners fast (they usually run on the JavaFX Application Thread),
+ * the listener never waits for a lock, and the descendants of added or removed objects are only visited when
+ * changes are polled. Only generic structure changes (that don't report which objects were added or removed)
+ * make the feed compare all objects of the hierarchy with the objects it knows.
+ * <p>
+ * At most a fixed number of changes are kept. If older changes were dropped, {@link #poll(long)} reports a
+ * reset, and clients should fetch all objects again.
+ * <p>
+ * This class is thread-safe.
+ */
+public class HierarchyChangeFeed implements AutoCloseable {
+
+    /**
+     * The maximum number of changes kept by default.
+     */
+    public static final int DEFAULT_MAX_CHANGES = 100000;
+    private final Deque<Change> changes = new ArrayDeque<>();
+    private final Queue<PendingChange> pendingChanges = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger numPendingChanges = new AtomicInteger(0);
+    private final Map<UUID, PathObject> knownObjects = new HashMap<>();
+    private final PathObjectHierarchyListener listener = this::hierarchyChanged;
+    private final PathObjectHierarchy hierarchy;
+    private final int maxChanges;
+    private long sequence = 0;
+    private long lastDroppedSequence = 0;
+    private volatile boolean structureChanged = false;
+    private volatile boolean pendingChangesOverflowed = false;
+    private volatile boolean closed = false;
+
+    private enum ChangeType {
+        ADDED,
+        REMOVED,
+        CHANGED
+    }
+
+    private record Change(long sequence, UUID id, ChangeType type) {}
+
+    private record PendingChange(PathObject pathObject, ChangeType type) {}
+
+    /**
+     * Create the feed and start listening to changes of the hierarchy of the provided image.
+     * The objects currently in the hierarchy are the starting point of the feed (sequence number 0).
+     *
+     * @param imageData  the image whose hierarchy should be listened to
+     * @param maxChanges  the maximum number of changes to keep
+     * @throws IllegalArgumentException if the maximum number of changes is not positive
+     */
+    public HierarchyChangeFeed(ImageData<?> imageData, int maxChanges) {
+        if (maxChanges <= 0) {
+            throw new IllegalArgumentException(String.format("The maximum number of changes %d is not positive", maxChanges));
+        }
+
+        this.hierarchy = imageData.getHierarchy();
+        this.maxChanges = maxChanges;
+
+        synchronized (this) {
+            for (PathObject pathObject: getHierarchyObjects()) {
+                knownObjects.put(pathObject.getID(), pathObject);
+            }
+        }
+        hierarchy.addListener(listener);
+    }
+
+    /**
+     * @return the sequence number of the last recorded change, or 0 if no change was recorded
+     */
+    public synchronized long getSequence() {
+        recordPendingChanges();
+        return sequence;
+    }
+
+    /**
+     * Get the changes that happened after the provided sequence number.
+     *
+     * @param sinceSequence  the sequence number returned by the previous call to this function,
+     *                       or 0 to get all changes since the creation of this feed
+     * @return a JSON object with the "sequence" number of the last change (to provide to the next call of this
+     * function), a "reset" boolean indicating whether some changes were dropped (in which case clients should
+     * fetch all objects again and the lists of changes are empty), and the "added", "removed", and "changed"
+     * lists of object IDs
+     * @throws IllegalStateException if this feed is closed
+     */
+    public synchronized String poll(long sinceSequence) {
+        checkOpen();
+        recordPendingChanges();
+
+        boolean reset = sinceSequence < lastDroppedSequence;
+        Map<UUID, ChangeType> coalescedChanges = new LinkedHashMap<>();
+        if (!reset) {
+            for (Change change: changes) {
+                if (change.sequence() > sinceSequence) {
+                    coalesce(coalescedChanges, change);
+                }
+            }
+        }
+
+        JsonObject json = new JsonObject();
+        json.addProperty("sequence", sequence);
+        json.addProperty("reset", reset);
+        for (ChangeType type: ChangeType.values()) {
+            JsonArray ids = new JsonArray();
+            coalescedChanges.forEach((id, changeType) -> {
+                if (changeType == type) {
+                    ids.add(id.toString());
+                }
+            });
+            json.add(type.name().toLowerCase(), ids);
+        }
+        return GsonTools.getInstance().toJson(json);
+    }
+
+    /**
+     * Get objects of the hierarchy by ID, for example to retrieve the geometry or measurements of the objects
+     * returned by {@link #poll(long)} with {@link QuPathEntryPoint#getROIsWKB(Collection)} or
+     * {@link QuPathEntryPoint#getMeasurementColumns(Collection, List)}.
+     *
+     * @param ids  the IDs of the objects to retrieve
+     * @return the objects with the provided IDs, in the same order. IDs of objects not in the hierarchy are skipped
+     * @throws IllegalStateException if this feed is closed
+     */
+    public synchronized List<PathObject> getObjects(List<String> ids) {
+        checkOpen();
+        recordPendingChanges();
+
+        return ids.stream()
+                .map(id -> knownObjects.get(UUID.fromString(id)))
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * Stop listening to changes of the hierarchy and forget all changes. This has no effect if the feed
+     * is already closed.
+     */
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            hierarchy.removeListener(listener);
+            changes.clear();
+            knownObjects.clear();
+            pendingChanges.clear();
+        }
+    }
+
+    private void hierarchyChanged(PathObjectHierarchyEvent event) {
+        if (closed || event.isChanging()) {
+            return;
+        }
+
+        ChangeType type = switch (event.getEventType()) {
+            case ADDED -> ChangeType.ADDED;
+            case REMOVED -> ChangeType.REMOVED;
+            case OTHER_STRUCTURE_CHANGE -> null;
+            default -> ChangeType.CHANGED;
+        };
+        if (type == null) {
+            structureChanged = true;
+            return;
+        }
+
+        for (PathObject pathObject: event.getChangedObjects()) {
+            // Beyond the maximum number of changes, changes would be dropped anyway. The counter is only
+            // an upper bound of the size of the queue, as it is incremented before adding to the queue
+            if (numPendingChanges.incrementAndGet() <= maxChanges) {
+                pendingChanges.add(new PendingChange(pathObject, type));
+            } else {
+                numPendingChanges.decrementAndGet();
+                pendingChangesOverflowed = true;
+            }
+        }
+    }
+
+    private void recordPendingChanges() {
+        if (closed) {
+            return;
+        }
+
+        // The queue is drained until empty rather than up to the counter, as the listener may have incremented
+        // the counter without having added its change yet. Such a change is recorded by the next call
+        boolean overflowed = pendingChangesOverflowed;
+        pendingChangesOverflowed = false;
+        PendingChange change;
+        while ((change = pendingChanges.poll()) != null) {
+            numPendingChanges.decrementAndGet();
+            if (!overflowed) {
+                recordPendingChange(change);
+            }
+        }
+
+        if (overflowed) {
+            dropAllChanges();
+            // Added and removed objects were lost, so the known objects must be compared with the hierarchy
+            structureChanged = true;
+        }
+
+        if (structureChanged) {
+            structureChanged = false;
+            recordStructureChanges();
+        }
+    }
+
+    private void recordPendingChange(PendingChange change) {
+        PathObject pathObject = change.pathObject();
+
+        switch (change.type()) {
+            // Descendants are added or removed with their ancestor without being reported by the hierarchy
+            case ADDED -> {
+                recordAdded(pathObject);
+                pathObject.getDescendantObjects(null).forEach(this::recordAdded);
+            }
+            case REMOVED -> {
+                recordRemoved(pathObject);
+                pathObject.getDescendantObjects(null).forEach(this::recordRemoved);
+            }
+            case CHANGED -> record(pathObject.getID(), ChangeType.CHANGED);
+        }
+    }
+
+    private void recordAdded(PathObject pathObject) {
+        if (knownObjects.put(pathObject.getID(), pathObject) == null) {
+            record(pathObject.getID(), ChangeType.ADDED);
+        }
+    }
+
+    private void recordRemoved(PathObject pathObject) {
+        if (knownObjects.remove(pathObject.getID()) != null) {
+            record(pathObject.getID(), ChangeType.REMOVED);
+        }
+    }
+
+    private void dropAllChanges() {
+        sequence++;
+        lastDroppedSequence = sequence;
+        changes.clear();
+    }
+
+    private void recordStructureChanges() {
+
+        Map<UUID, PathObject> currentObjects = new HashMap<>();
+        for (PathObject pathObject: getHierarchyObjects()) {
+            currentObjects.put(pathObject.getID(), pathObject);
+        }
+
+        for (UUID id: List.copyOf(knownObjects.keySet())) {
+            if (!currentObjects.containsKey(id)) {
+                knownObjects.remove(id);
+                record(id, ChangeType.REMOVED);
+            }
+        }
+        for (var entry: currentObjects.entrySet()) {
+            if (knownObjects.put(entry.getKey(), entry.getValue()) == null) {
+                record(entry.getKey(), ChangeType.ADDED);
+            }
+        }
+    }
+
+    private Collection<PathObject> getHierarchyObjects() {
+        return hierarchy.getAllObjects(false);
+    }
+
+    private void record(UUID id, ChangeType type) {
+        sequence++;
+        changes.addLast(new Change(sequence, id, type));
+
+        while (changes.size() > maxChanges) {
+            lastDroppedSequence = changes.removeFirst().sequence();
+        }
+    }
+
+    private static void coalesce(Map<UUID, ChangeType> coalescedChanges, Change change) {
+        ChangeType previousType = coalescedChanges.get(change.id());
+
+        switch (change.type()) {
+            case ADDED -> coalescedChanges.put(
+                    change.id(),
+                    previousType == ChangeType.REMOVED ? ChangeType.CHANGED : ChangeType.ADDED
+            );
+            case REMOVED -> {
+                if (previousType == ChangeType.ADDED) {
+                    coalescedChanges.remove(change.id());
+                } else {
+                    coalescedChanges.put(change.id(), ChangeType.REMOVED);
+                }
+            }
+            case CHANGED -> {
+                if (previousType == null) {
+                    coalescedChanges.put(change.id(), ChangeType.CHANGED);
+                }
+            }
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("This feed is closed");
+        }
+    }
+}
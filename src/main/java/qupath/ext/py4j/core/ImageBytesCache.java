@@ -0,0 +1,137 @@
+package qupath.ext.py4j.core;
+
+import qupath.lib.regions.RegionRequest;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of encoded image regions, evicting the least recently used regions once the total
+ * size of the cached regions exceeds a maximum size.
+ * <p>
+ * Cached arrays are returned directly, so they must not be modified.
+ * <p>
+ * This class is thread-safe.
+ */
+class ImageBytesCache {
+
+    private final Map<Key, byte[]> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long maxSize;
+    private long size = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * A function that creates an encoded image region.
+     */
+    @FunctionalInterface
+    public interface Loader {
+
+        /**
+         * @return the encoded image region
+         * @throws IOException when an error occurs while reading the image
+         */
+        byte[] load() throws IOException;
+    }
+
+    private record Key(String serverPath, RegionRequest request, String format) {}
+
+    /**
+     * Create the cache.
+     *
+     * @param maxSize  the maximum number of bytes the cached regions can take. If 0, nothing is cached
+     */
+    public ImageBytesCache(long maxSize) {
+        this.maxSize = Math.max(0, maxSize);
+    }
+
+    /**
+     * Get an encoded image region from the cache, or create it and add it to the cache if it's not present.
+     * Regions larger than the maximum size of the cache are not cached.
+     *
+     * @param serverPath  the path of the server containing the region
+     * @param request  the region to get
+     * @param format  the format of the encoded region
+     * @param loader  a function to create the encoded region if it's not in the cache
+     * @return the encoded image region
+     * @throws IOException when an error occurs while creating the encoded region
+     */
+    public byte[] get(String serverPath, RegionRequest request, String format, Loader loader) throws IOException {
+        Key key = new Key(serverPath, request, format);
+
+        synchronized (this) {
+            byte[] bytes = cache.get(key);
+            if (bytes != null) {
+                hits++;
+                return bytes;
+            }
+            misses++;
+        }
+
+        // Loading happens outside the lock, so that several regions can be loaded in parallel
+        byte[] bytes = loader.load();
+
+        synchronized (this) {
+            if (bytes.length <= maxSize) {
+                byte[] previousBytes = cache.put(key, bytes);
+                if (previousBytes != null) {
+                    size -= previousBytes.length;
+                }
+                size += bytes.length;
+                evict();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Set the maximum number of bytes the cached regions can take. If the cache is currently larger,
+     * the least recently used regions are evicted.
+     *
+     * @param maxSize  the maximum number of bytes the cached regions can take. If 0, nothing is cached
+     */
+    public synchronized void setMaxSize(long maxSize) {
+        this.maxSize = Math.max(0, maxSize);
+        evict();
+    }
+
+    /**
+     * Remove all regions from the cache. Statistics are not reset.
+     */
+    public synchronized void clear() {
+        cache.clear();
+        size = 0;
+    }
+
+    /**
+     * Get statistics about the cache. The returned map contains the following keys: "hits" (the number of times
+     * a region was found in the cache), "misses" (the number of times a region was not found in the cache),
+     * "evictions" (the number of regions evicted because the cache was full), "entries" (the number of cached
+     * regions), "size" (the number of bytes taken by the cached regions), and "maxSize" (the maximum number of
+     * bytes the cached regions can take).
+     *
+     * @return statistics about the cache
+     */
+    public synchronized Map<String, Long> getStatistics() {
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        statistics.put("hits", hits);
+        statistics.put("misses", misses);
+        statistics.put("evictions", evictions);
+        statistics.put("entries", (long) cache.size());
+        statistics.put("size", size);
+        statistics.put("maxSize", maxSize);
+        return statistics;
+    }
+
+    private void evict() {
+        Iterator<byte[]> iterator = cache.values().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            size -= iterator.next().length;
+            iterator.remove();
+            evictions++;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package qupath.ext.py4j.core;
+
+import java.nio.file.Path;
+
+/**
+ * An image whose raw pixel values have been written to a memory-mapped file by a {@link MappedImageStore}.
+ * <p>
+ * The file contains the header described in {@link QuPathEntryPoint#getRawBytes(java.awt.image.BufferedImage, boolean)}
+ * followed by the pixel values, so it can be opened from Python with
+ * {@code numpy.memmap(getPath(), dtype=getDtype(), mode="r", offset=getOffset(), shape=getShape())}
+ * without copying the pixels through the Py4J socket.
+ * <p>
+ * Call {@link #release()} once the pixels are not needed anymore, so that the file can be reused or deleted.
+ */
+public class MappedImage {
+
+    private final MappedImageStore store;
+    private final Path path;
+    private final int width;
+    private final int height;
+    private final int nChannels;
+    private final RawPixels.DataType dataType;
+    private final boolean interleaved;
+    private volatile boolean released = false;
+
+    MappedImage(MappedImageStore store, Path path, int width, int height, int nChannels, RawPixels.DataType dataType, boolean interleaved) {
+        this.store = store;
+        this.path = path;
+        this.width = width;
+        this.height = height;
+        this.nChannels = nChannels;
+        this.dataType = dataType;
+        this.interleaved = interleaved;
+    }
+
+    /**
+     * @return the absolute path of the file containing the pixels
+     */
+    public String getPath() {
+        return path.toAbsolutePath().toString();
+    }
+
+    /**
+     * @return the offset in bytes where the pixel values start in the file
+     */
+    public int getOffset() {
+        return RawPixels.HEADER_SIZE;
+    }
+
+    /**
+     * @return the width of the image
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the height of the image
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return the number of channels of the image
+     */
+    public int getNumChannels() {
+        return nChannels;
+    }
+
+    /**
+     * @return the shape of the pixel array: (height, width, channels) if the pixels are interleaved,
+     * or (channels, height, width) otherwise
+     */
+    public int[] getShape() {
+        return interleaved ? new int[] {height, width, nChannels} : new int[] {nChannels, height, width};
+    }
+
+    /**
+     * @return the NumPy type string of the pixels (for example "&lt;u2")
+     */
+    public String getDtype() {
+        return dataType.getNumpyType();
+    }
+
+    /**
+     * @return whether the pixels are interleaved (height, width, channels) or planar (channels, height, width)
+     */
+    public boolean isInterleaved() {
+        return interleaved;
+    }
+
+    /**
+     * @return whether this image has been released. If so, the file may have been deleted or overwritten
+     */
+    public boolean isReleased() {
+        return released;
+    }
+
+    /**
+     * Indicate that the pixels of this image are not needed anymore, so that the underlying file
+     * can be reused or deleted. Calling this function more than once has no effect.
+     */
+    public void release() {
+        store.release(this);
+    }
+
+    Path getFilePath() {
+        return path;
+    }
+
+    void setReleased() {
+        released = true;
+    }
+
+    @Override
+    public String toString() {
+        return "MappedImage{" +
+                "path=" + path +
+                ", width=" + width +
+                ", height=" + height +
+                ", nChannels=" + nChannels +
+                ", dtype=" + dataType.getNumpyType() +
+                ", interleaved=" + interleaved +
+                ", released=" + released +
+                '}';
+    }
+}
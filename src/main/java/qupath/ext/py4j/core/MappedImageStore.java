@@ -0,0 +1,244 @@
+package qupath.ext.py4j.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Write images to memory-mapped files located in a temporary directory, and manage the lifecycle of these files.
+ * <p>
+ * Files of released images are kept (up to {@link #getMaxPooledFiles()} files) and reused by later images
+ * to avoid creating and deleting many files. If more than {@link #getMaxActiveFiles()} images have not been released,
+ * the files of the oldest ones are deleted. On most operating systems, this doesn't affect memory maps that
+ * are already open. All files are deleted when {@link #clear()} is called or when the JVM exits.
+ * <p>
+ * This class is thread-safe.
+ */
+class MappedImageStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedImageStore.class);
+    private static final String FILE_PREFIX = "qupath-py4j-";
+    private static final String FILE_SUFFIX = ".raw";
+    private final Deque<MappedImage> activeImages = new ArrayDeque<>();
+    private final Map<Path, Long> pooledFiles = new LinkedHashMap<>();
+    private Path directory;
+    private boolean directoryCreated = false;
+    private int maxPooledFiles = 8;
+    private int maxActiveFiles = 64;
+
+    /**
+     * Create the store. Files will be written to a new directory located in the default temporary directory.
+     */
+    public MappedImageStore() {
+        Runtime.getRuntime().addShutdownHook(new Thread(this::clear, "py4j-mapped-image-cleanup"));
+    }
+
+    /**
+     * Set the directory where files should be written. This directory should ideally be located on a RAM-backed
+     * file system (for example /dev/shm on Linux). Files already written to the previous directory are deleted.
+     *
+     * @param directory  the directory where files should be written, or null to use a new directory located
+     *                   in the default temporary directory
+     */
+    public synchronized void setDirectory(Path directory) {
+        clear();
+        this.directory = directory;
+        this.directoryCreated = false;
+    }
+
+    /**
+     * @return the directory where files are written, or null if it hasn't been created yet
+     */
+    public synchronized Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return the maximum number of files of released images that are kept to be reused
+     */
+    public synchronized int getMaxPooledFiles() {
+        return maxPooledFiles;
+    }
+
+    /**
+     * @param maxPooledFiles  the maximum number of files of released images that are kept to be reused
+     */
+    public synchronized void setMaxPooledFiles(int maxPooledFiles) {
+        this.maxPooledFiles = Math.max(0, maxPooledFiles);
+        trimPool();
+    }
+
+    /**
+     * @return the maximum number of images that can be active (not released) before the files of the
+     * oldest ones are deleted
+     */
+    public synchronized int getMaxActiveFiles() {
+        return maxActiveFiles;
+    }
+
+    /**
+     * @param maxActiveFiles  the maximum number of images that can be active (not released) before the files of the
+     *                        oldest ones are deleted
+     */
+    public synchronized void setMaxActiveFiles(int maxActiveFiles) {
+        this.maxActiveFiles = Math.max(1, maxActiveFiles);
+        trimActive();
+    }
+
+    /**
+     * Write the raw pixel values of the provided image to a memory-mapped file.
+     *
+     * @param image  the image to write
+     * @param interleaved  whether pixels should be interleaved (height, width, channels) or planar (channels, height, width)
+     * @return a description of the written file
+     * @throws IOException when an error occurs while creating or writing the file
+     */
+    public MappedImage write(BufferedImage image, boolean interleaved) throws IOException {
+        long length = RawPixels.getByteLength(image);
+        Path path = takeFile(length);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            RawPixels.write(image, interleaved, buffer);
+        } catch (IOException | RuntimeException e) {
+            deleteFile(path);
+            throw e;
+        }
+
+        MappedImage mappedImage = new MappedImage(
+                this,
+                path,
+                image.getWidth(),
+                image.getHeight(),
+                image.getRaster().getNumBands(),
+                RawPixels.getDataType(image),
+                interleaved
+        );
+        synchronized (this) {
+            activeImages.addLast(mappedImage);
+            trimActive();
+        }
+        return mappedImage;
+    }
+
+    /**
+     * Release the provided image, so that its file can be reused or deleted.
+     *
+     * @param mappedImage  the image to release
+     */
+    public synchronized void release(MappedImage mappedImage) {
+        if (activeImages.remove(mappedImage)) {
+            mappedImage.setReleased();
+
+            Path path = mappedImage.getFilePath();
+            if (maxPooledFiles > 0 && directory != null && path.startsWith(directory)) {
+                try {
+                    pooledFiles.put(path, Files.size(path));
+                } catch (IOException e) {
+                    logger.debug("Cannot get size of {}", path, e);
+                    deleteFile(path);
+                }
+                trimPool();
+            } else {
+                deleteFile(path);
+            }
+        }
+    }
+
+    /**
+     * Release all images and delete all files written by this store.
+     */
+    public synchronized void clear() {
+        for (MappedImage mappedImage: activeImages) {
+            mappedImage.setReleased();
+            deleteFile(mappedImage.getFilePath());
+        }
+        activeImages.clear();
+
+        for (Path path: pooledFiles.keySet()) {
+            deleteFile(path);
+        }
+        pooledFiles.clear();
+
+        if (directoryCreated && directory != null) {
+            deleteFile(directory);
+            directory = null;
+            directoryCreated = false;
+        }
+    }
+
+    /**
+     * @return the number of images that have been written and not released yet
+     */
+    public synchronized int getNumActiveImages() {
+        return activeImages.size();
+    }
+
+    private synchronized Path takeFile(long length) throws IOException {
+        // Reuse the smallest pooled file large enough to contain the image
+        Path bestPath = null;
+        long bestSize = Long.MAX_VALUE;
+        for (Map.Entry<Path, Long> entry: pooledFiles.entrySet()) {
+            if (entry.getValue() >= length && entry.getValue() < bestSize) {
+                bestPath = entry.getKey();
+                bestSize = entry.getValue();
+            }
+        }
+
+        if (bestPath == null) {
+            return Files.createTempFile(getOrCreateDirectory(), FILE_PREFIX, FILE_SUFFIX);
+        } else {
+            pooledFiles.remove(bestPath);
+            return bestPath;
+        }
+    }
+
+    private Path getOrCreateDirectory() throws IOException {
+        if (directory == null) {
+            directory = Files.createTempDirectory(FILE_PREFIX);
+            directoryCreated = true;
+        } else if (!Files.isDirectory(directory)) {
+            Files.createDirectories(directory);
+        }
+        return directory;
+    }
+
+    private void trimPool() {
+        Iterator<Path> iterator = pooledFiles.keySet().iterator();
+        while (pooledFiles.size() > maxPooledFiles && iterator.hasNext()) {
+            deleteFile(iterator.next());
+            iterator.remove();
+        }
+    }
+
+    private void trimActive() {
+        while (activeImages.size() > maxActiveFiles) {
+            MappedImage oldest = activeImages.removeFirst();
+            logger.debug("{} was not released and will be deleted", oldest);
+
+            oldest.setReleased();
+            deleteFile(oldest.getFilePath());
+        }
+    }
+
+    private static void deleteFile(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // May happen on Windows if the file is still mapped
+            logger.debug("Cannot delete {}", path, e);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package qupath.ext.py4j.core;
+
+import qupath.lib.objects.PathObject;
+import qupath.lib.objects.hierarchy.PathObjectHierarchy;
+import qupath.lib.regions.ImageRegion;
+import qupath.lib.roi.interfaces.ROI;
+
+import java.util.Collection;
+
+/**
+ * The types of objects that can be requested by Python clients, and the corresponding queries on a
+ * {@link PathObjectHierarchy}.
+ */
+enum ObjectType {
+
+    ALL,
+    DETECTION,
+    ANNOTATION,
+    CELL,
+    TILE;
+
+    /**
+     * Parse a type of objects.
+     *
+     * @param type  "detection", "annotation", "cell", "tile" (or their plural), or null or "all"
+     * @return the corresponding type of objects
+     * @throws IllegalArgumentException if the type is not recognized
+     */
+    public static ObjectType fromString(String type) {
+        if (type == null || type.isBlank()) {
+            return ALL;
+        }
+        return switch (type.strip().toLowerCase()) {
+            case "all" -> ALL;
+            case "detection", "detections" -> DETECTION;
+            case "annotation", "annotations" -> ANNOTATION;
+            case "cell", "cells" -> CELL;
+            case "tile", "tiles" -> TILE;
+            default -> throw new IllegalArgumentException(String.format("The object type %s is not recognized", type));
+        };
+    }
+
+    /**
+     * @param hierarchy  the hierarchy containing the objects
+     * @return all objects of this type of the provided hierarchy
+     */
+    public Collection<PathObject> getObjects(PathObjectHierarchy hierarchy) {
+        return switch (this) {
+            case ALL -> hierarchy.getAllObjects(false);
+            case DETECTION -> hierarchy.getDetectionObjects();
+            case ANNOTATION -> hierarchy.getAnnotationObjects();
+            case CELL -> hierarchy.getCellObjects();
+            case TILE -> hierarchy.getTileObjects();
+        };
+    }
+
+    /**
+     * @param hierarchy  the hierarchy containing the objects
+     * @param region  the region the objects should intersect
+     * @return the objects of this type whose bounding box intersects the provided region, found with the
+     * spatial index of the hierarchy
+     */
+    public Collection<PathObject> getObjectsForRegion(PathObjectHierarchy hierarchy, ImageRegion region) {
+        return switch (this) {
+            case ALL -> hierarchy.getAllObjectsForRegion(region);
+            case DETECTION -> hierarchy.getAllDetectionsForRegion(region);
+            case ANNOTATION -> hierarchy.getAnnotationsForRegion(region);
+            case CELL -> hierarchy.getCellsForRegion(region);
+            case TILE -> hierarchy.getTilesForRegion(region);
+        };
+    }
+
+    /**
+     * @param hierarchy  the hierarchy containing the objects
+     * @param roi  the ROI the objects should be located in
+     * @return the objects of this type located within the provided ROI, found with the spatial index of the hierarchy
+     */
+    public Collection<PathObject> getObjectsForROI(PathObjectHierarchy hierarchy, ROI roi) {
+        return switch (this) {
+            case ALL -> hierarchy.getAllObjectsForROI(roi);
+            case DETECTION -> hierarchy.getAllDetectionsForROI(roi);
+            case ANNOTATION -> hierarchy.getAnnotationsForROI(roi);
+            case CELL -> hierarchy.getCellsForROI(roi);
+            case TILE -> hierarchy.getTilesForROI(roi);
+        };
+    }
+}
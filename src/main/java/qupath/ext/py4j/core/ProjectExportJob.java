@@ -0,0 +1,414 @@
+package qupath.ext.py4j.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qupath.lib.common.ThreadTools;
+import qupath.lib.images.ImageData;
+import qupath.lib.io.GsonTools;
+import qupath.lib.objects.PathObject;
+import qupath.lib.projects.ProjectImageEntry;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A job that exports the objects of the images of a project to a directory in the background.
+ * <p>
+ * Images are processed in parallel on a dedicated pool of threads. For each image, the image data is read,
+ * the objects of the requested type are written to one file per requested format, and the image is closed.
+ * The following formats are supported:
+ * <ul>
+ *     <li>{@link #GEOJSON_FORMAT}: a GeoJSON FeatureCollection containing the geometry, classification and
+ *     measurements of each object, written to a ".geojson" file.</li>
+ *     <li>{@link #TSV_FORMAT}: the measurement table of the objects (as returned by
+ *     {@link QuPathEntryPoint#getMeasurementTable(ImageData, Collection)}), written to a ".tsv" file.</li>
+ *     <li>{@link #COLUMNAR_FORMAT}: the measurements of the objects in the binary columnar format described in
+ *     {@link ColumnarTableWriter}, written to a ".qpcol" file. This is much faster to write and read than
+ *     {@link #TSV_FORMAT}, and keeps the full precision of the values.</li>
+ * </ul>
+ * Output files are named after the ID and the name of the image entry.
+ * <p>
+ * To limit memory usage, an optional ceiling on the used heap can be provided: a new image is only started
+ * if the used heap is below the ceiling, or if no other image is being processed. Reading an image and writing
+ * each of its files are also heavy calls limited by {@link QuPathEntryPoint#setHeavyCallLimits(int, int, long)},
+ * like the calls made by Python clients.
+ * <p>
+ * An image that cannot be exported doesn't stop the job: its error is reported by {@link #getFailures()},
+ * and the {@link #getState() state} of the finished job indicates whether some or all images failed.
+ * <p>
+ * This class is thread-safe.
+ */
+public class ProjectExportJob {
+
+    /**
+     * The format writing objects to a GeoJSON FeatureCollection.
+     */
+    public static final String GEOJSON_FORMAT = "geojson";
+    /**
+     * The format writing the measurement table of objects to a tab-separated file.
+     */
+    public static final String TSV_FORMAT = "tsv";
+    /**
+     * The format writing the measurements of objects to a binary columnar file.
+     */
+    public static final String COLUMNAR_FORMAT = "columnar";
+    private static final Logger logger = LoggerFactory.getLogger(ProjectExportJob.class);
+    private static final ThreadFactory threadFactory = ThreadTools.createThreadFactory("py4j-project-export-", true);
+    private static final Map<String, String> FILE_EXTENSIONS = Map.of(
+            GEOJSON_FORMAT, ".geojson",
+            TSV_FORMAT, ".tsv",
+            COLUMNAR_FORMAT, ".qpcol"
+    );
+    private static final long MEMORY_CHECK_INTERVAL_MILLIS = 100;
+    private final CompletableFuture<List<String>> result = new CompletableFuture<>();
+    private final AtomicInteger numCompleted = new AtomicInteger(0);
+    private final AtomicInteger numRunning = new AtomicInteger(0);
+    private final Map<String, String> failures = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final List<String> outputFiles = Collections.synchronizedList(new ArrayList<>());
+    private final List<ProjectImageEntry<BufferedImage>> entries;
+    private final Path outputDirectory;
+    private final List<String> formats;
+    private final ObjectType objectType;
+    private final int nThreads;
+    private final long maxMemoryBytes;
+    private final ExecutorService executor;
+    private final Thread coordinator;
+    private volatile boolean cancelled = false;
+
+    /**
+     * The state of a project export.
+     */
+    public enum State {
+        /**
+         * The export is running
+         */
+        RUNNING,
+        /**
+         * All images were exported
+         */
+        SUCCEEDED,
+        /**
+         * The export finished, but some images could not be exported
+         */
+        PARTIALLY_SUCCEEDED,
+        /**
+         * No image could be exported, or an unexpected error stopped the export
+         */
+        FAILED,
+        /**
+         * The export was cancelled before it finished
+         */
+        CANCELLED
+    }
+
+    /**
+     * Create and start the job.
+     *
+     * @param entries  the images to export
+     * @param outputDirectory  the directory to write files to. It is created if it doesn't exist
+     * @param formats  the formats to write (see the description of this class)
+     * @param objectType  the type of objects to export ("detection", "annotation", "cell", "tile"), or null or "all"
+     *                    to export objects of any type
+     * @param nThreads  the number of images processed at the same time
+     * @param maxMemoryBytes  the maximum number of bytes of used heap for a new image to be started, or 0 to not
+     *                        limit memory usage
+     * @throws IOException if the output directory cannot be created
+     * @throws IllegalArgumentException if the number of threads is not positive, if the maximum memory is negative,
+     * if a format is not supported, or if the object type is not recognized
+     */
+    public ProjectExportJob(
+            List<ProjectImageEntry<BufferedImage>> entries,
+            Path outputDirectory,
+            List<String> formats,
+            String objectType,
+            int nThreads,
+            long maxMemoryBytes
+    ) throws IOException {
+        if (nThreads <= 0) {
+            throw new IllegalArgumentException(String.format("The number of threads %d is not positive", nThreads));
+        }
+        if (maxMemoryBytes < 0) {
+            throw new IllegalArgumentException(String.format("The maximum memory %d is negative", maxMemoryBytes));
+        }
+        this.formats = formats.stream().map(String::toLowerCase).distinct().toList();
+        for (String format: this.formats) {
+            if (!FILE_EXTENSIONS.containsKey(format)) {
+                throw new IllegalArgumentException(String.format(
+                        "The format %s is not supported (expected one of %s)",
+                        format,
+                        FILE_EXTENSIONS.keySet()
+                ));
+            }
+        }
+        this.objectType = ObjectType.fromString(objectType);
+        this.entries = List.copyOf(entries);
+        this.outputDirectory = Files.createDirectories(outputDirectory);
+        this.nThreads = nThreads;
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.executor = Executors.newFixedThreadPool(nThreads, threadFactory);
+
+        coordinator = threadFactory.newThread(QuPathEntryPoint.getCallMetricsRecorder().attributeToConnection(this::run));
+        coordinator.start();
+    }
+
+    /**
+     * @return the number of images to export
+     */
+    public int getNumImages() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of images processed so far, successfully or not
+     */
+    public int getNumCompleted() {
+        return numCompleted.get();
+    }
+
+    /**
+     * @return the number of images being processed
+     */
+    public int getNumRunning() {
+        return numRunning.get();
+    }
+
+    /**
+     * @return the fraction of images processed so far, between 0 and 1
+     */
+    public double getProgress() {
+        return entries.isEmpty() ? 1 : (double) getNumCompleted() / entries.size();
+    }
+
+    /**
+     * @return the IDs of the image entries that couldn't be exported, mapped to the name of the image and
+     * the corresponding error message (formatted as "name: message")
+     */
+    public Map<String, String> getFailures() {
+        synchronized (failures) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(failures));
+        }
+    }
+
+    /**
+     * @return the paths of the files written so far
+     */
+    public List<String> getOutputFiles() {
+        synchronized (outputFiles) {
+            return List.copyOf(outputFiles);
+        }
+    }
+
+    /**
+     * @return whether the job is finished, either because all images were processed or because it was cancelled
+     */
+    public boolean isDone() {
+        return result.isDone();
+    }
+
+    /**
+     * @return whether the job was cancelled before it finished
+     */
+    public boolean isCancelled() {
+        return result.isCancelled();
+    }
+
+    /**
+     * @return the current state of this job
+     */
+    public State getState() {
+        if (!result.isDone()) {
+            return State.RUNNING;
+        } else if (result.isCancelled()) {
+            return State.CANCELLED;
+        } else if (result.isCompletedExceptionally()) {
+            return State.FAILED;
+        }
+
+        int numFailures = failures.size();
+        if (numFailures == 0) {
+            return State.SUCCEEDED;
+        } else if (numFailures < entries.size()) {
+            return State.PARTIALLY_SUCCEEDED;
+        } else {
+            return State.FAILED;
+        }
+    }
+
+    /**
+     * Cancel the job. Images being processed are interrupted, and no more images are started.
+     * Files already written are kept. This has no effect if the job is already finished.
+     */
+    public void cancel() {
+        if (!result.cancel(false)) {
+            return;
+        }
+
+        cancelled = true;
+        coordinator.interrupt();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Wait for the job to finish.
+     *
+     * @return the paths of the written files
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     * @throws ExecutionException if an unexpected error stopped the job
+     * @throws CancellationException if the job was cancelled
+     */
+    public List<String> get() throws InterruptedException, ExecutionException {
+        return result.get();
+    }
+
+    /**
+     * Wait for the job to finish, up to the provided timeout.
+     *
+     * @param timeoutMillis  the maximum number of milliseconds to wait
+     * @return the paths of the written files
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     * @throws ExecutionException if an unexpected error stopped the job
+     * @throws TimeoutException if the job is not finished before the timeout expires
+     * @throws CancellationException if the job was cancelled
+     */
+    public List<String> get(long timeoutMillis) throws InterruptedException, ExecutionException, TimeoutException {
+        return result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Call a function once this job is finished, either because all images were processed or because it was
+     * cancelled. If the job is already finished, the function is called immediately.
+     *
+     * @param onDone  the function to call
+     */
+    void whenDone(Runnable onDone) {
+        result.whenComplete((files, error) -> onDone.run());
+    }
+
+    private void run() {
+        Semaphore permits = new Semaphore(nThreads);
+
+        try {
+            for (ProjectImageEntry<BufferedImage> entry: entries) {
+                permits.acquire();
+                waitForMemory();
+
+                numRunning.incrementAndGet();
+                executor.execute(QuPathEntryPoint.getCallMetricsRecorder().attributeToConnection(() -> {
+                    try {
+                        exportImage(entry);
+                    } finally {
+                        numRunning.decrementAndGet();
+                        numCompleted.incrementAndGet();
+                        permits.release();
+                    }
+                }));
+            }
+
+            // Wait for the last images
+            permits.acquire(nThreads);
+            result.complete(getOutputFiles());
+        } catch (InterruptedException e) {
+            logger.debug("Project export cancelled", e);
+            result.cancel(false);
+        } catch (Exception e) {
+            result.completeExceptionally(e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void waitForMemory() throws InterruptedException {
+        if (maxMemoryBytes == 0) {
+            return;
+        }
+
+        Runtime runtime = Runtime.getRuntime();
+        while (numRunning.get() > 0 && runtime.totalMemory() - runtime.freeMemory() > maxMemoryBytes) {
+            Thread.sleep(MEMORY_CHECK_INTERVAL_MILLIS);
+        }
+    }
+
+    private void exportImage(ProjectImageEntry<BufferedImage> entry) {
+        if (cancelled) {
+            return;
+        }
+
+        String baseName = String.format("%s-%s", entry.getID(), entry.getImageName().replaceAll("[^A-Za-z0-9._-]", "_"));
+        CallLimiter callLimiter = QuPathEntryPoint.getCallLimiter();
+        ImageData<BufferedImage> imageData = null;
+        try {
+            imageData = callLimiter.call(entry::readImageData);
+            Collection<PathObject> pathObjects = objectType.getObjects(imageData.getHierarchy());
+
+            for (String format: formats) {
+                Path file = outputDirectory.resolve(baseName + FILE_EXTENSIONS.get(format));
+                ImageData<BufferedImage> exportedImageData = imageData;
+                callLimiter.call(() -> {
+                    writeFile(exportedImageData, pathObjects, format, file);
+                    return null;
+                });
+                outputFiles.add(file.toString());
+            }
+            logger.debug("{} objects of {} exported", pathObjects.size(), entry.getImageName());
+        } catch (Exception e) {
+            if (!cancelled) {
+                logger.warn("Cannot export {}", entry.getImageName(), e);
+                failures.put(entry.getID(), String.format("%s: %s", entry.getImageName(), e.getLocalizedMessage()));
+            }
+        } finally {
+            if (imageData != null) {
+                try {
+                    imageData.getServer().close();
+                } catch (Exception e) {
+                    logger.debug("Cannot close image of {}", entry.getImageName(), e);
+                }
+            }
+        }
+    }
+
+    private static void writeFile(
+            ImageData<BufferedImage> imageData,
+            Collection<PathObject> pathObjects,
+            String format,
+            Path file
+    ) throws IOException {
+        if (format.equals(COLUMNAR_FORMAT)) {
+            ColumnarTableWriter.write(pathObjects, QuPathEntryPoint.getMeasurementNames(pathObjects), file, false);
+            return;
+        }
+
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            if (format.equals(GEOJSON_FORMAT)) {
+                FeatureCursor.writeFeatureCollection(GsonTools.getInstance(), pathObjects.iterator(), Integer.MAX_VALUE, writer);
+            } else {
+                for (String row: QuPathEntryPoint.getMeasurementTableRows(imageData, pathObjects)) {
+                    writer.write(row);
+                    writer.write(System.lineSeparator());
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+}
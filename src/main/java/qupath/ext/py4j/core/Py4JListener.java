@@ -6,7 +6,10 @@ import py4j.GatewayServer;
 import py4j.GatewayServerListener;
 import py4j.Py4JServerConnection;
 
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 /**
  * A listener to a {@link GatewayServer}
@@ -14,7 +17,11 @@ import java.util.function.Consumer;
 class Py4JListener implements GatewayServerListener {
 
     private static final Logger logger = LoggerFactory.getLogger(Py4JListener.class);
+    // A set is used rather than a counter so that a connection stopped several times is only counted once
+    private final Set<Py4JServerConnection> connections = ConcurrentHashMap.newKeySet();
     private final Consumer<Boolean> onRunningStateChanged;
+    private final IntConsumer onNumConnectionsChanged;
+    private final int maxConnections;
 
     /**
      * Create the listener.
@@ -22,9 +29,16 @@ class Py4JListener implements GatewayServerListener {
      * @param onRunningStateChanged  a function that will be called each time the state of the
      *                               underlying {@link GatewayServer} changes. This function
      *                               may be called from any thread
+     * @param onNumConnectionsChanged  a function that will be called with the number of open connections
+     *                                 each time a connection is started or stopped. This function
+     *                                 may be called from any thread
+     * @param maxConnections  the maximum number of connections that can be open at the same time. Connections
+     *                        started when this limit is reached are closed immediately. Use 0 to not limit connections
      */
-    public Py4JListener(Consumer<Boolean> onRunningStateChanged) {
+    public Py4JListener(Consumer<Boolean> onRunningStateChanged, IntConsumer onNumConnectionsChanged, int maxConnections) {
         this.onRunningStateChanged = onRunningStateChanged;
+        this.onNumConnectionsChanged = onNumConnectionsChanged;
+        this.maxConnections = Math.max(0, maxConnections);
     }
 
     @Override
@@ -36,12 +50,26 @@ class Py4JListener implements GatewayServerListener {
 
     @Override
     public void connectionStarted(Py4JServerConnection gatewayConnection) {
+        synchronized (connections) {
+            if (maxConnections > 0 && connections.size() >= maxConnections) {
+                logger.warn("Maximum number of connections ({}) reached. Closing new gateway connection", maxConnections);
+                gatewayConnection.shutdown();
+                return;
+            }
+            connections.add(gatewayConnection);
+        }
         logger.info("Gateway connection started");
+
+        onNumConnectionsChanged.accept(connections.size());
     }
 
     @Override
     public void connectionStopped(Py4JServerConnection gatewayConnection) {
-        logger.info("Gateway connection stopped");
+        if (connections.remove(gatewayConnection)) {
+            logger.info("Gateway connection stopped");
+
+            onNumConnectionsChanged.accept(connections.size());
+        }
     }
 
     @Override
@@ -1,12 +1,13 @@
 package qupath.ext.py4j.core;
 
 import com.google.common.collect.Lists;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.reflect.TypeToken;
 import ij.ImagePlus;
 import ij.io.FileSaver;
-import javafx.application.Platform;
+import javafx.scene.Scene;
 import qupath.fx.utils.FXUtils;
 import qupath.imagej.tools.IJTools;
 import qupath.lib.awt.common.BufferedImageTools;
@@ -22,22 +23,44 @@ import qupath.lib.images.ImageData;
 import qupath.lib.images.servers.ImageServer;
 import qupath.lib.io.FeatureCollection;
 import qupath.lib.io.GsonTools;
+import qupath.lib.measurements.MeasurementList;
 import qupath.lib.objects.PathObject;
+import qupath.lib.objects.PathObjects;
+import qupath.lib.objects.classes.PathClass;
+import qupath.lib.objects.hierarchy.PathObjectHierarchy;
+import qupath.lib.projects.Project;
+import qupath.lib.projects.ProjectIO;
 import qupath.lib.projects.ProjectImageEntry;
+import qupath.lib.regions.ImagePlane;
+import qupath.lib.regions.ImageRegion;
 import qupath.lib.regions.RegionRequest;
 import qupath.lib.roi.interfaces.ROI;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
@@ -46,6 +69,23 @@ import java.util.stream.Stream;
  */
 public class QuPathEntryPoint extends QPEx {
 
+	private static final long SNAPSHOT_RENDER_TIMEOUT_MILLIS = 1000;
+	private static final int MIN_OBJECTS_FOR_PARALLEL_MEASUREMENTS = 10000;
+	private static final String RAW_FORMAT = "raw";
+	private static final String RAW_INTERLEAVED_FORMAT = "raw interleaved";
+	private static final int TILES_PREFETCHED_PER_THREAD = 4;
+	private static final double LEVEL_DOWNSAMPLE_TOLERANCE = 1e-3;
+	private static final double INITIAL_NEAREST_OBJECTS_RADIUS = 256;
+	private static final MappedImageStore mappedImageStore = new MappedImageStore();
+	private static final ImageBytesCache imageBytesCache = new ImageBytesCache(0);
+	private static final CallLimiter callLimiter = new CallLimiter();
+	private static final CallMetrics callMetrics = new CallMetrics();
+	private static final AsyncJobManager asyncJobManager = new AsyncJobManager(Runtime.getRuntime().availableProcessors());
+	private static final EventDispatcher eventDispatcher = new EventDispatcher();
+	private static boolean eventSourcesWatched = false;
+	private volatile int bulkDataPort = -1;
+	private volatile BulkDataTickets bulkDataTickets = null;
+
 	/**
 	 * @return the current version of this extension
 	 */
@@ -59,16 +99,16 @@ public class QuPathEntryPoint extends QPEx {
 	 * @param qupath  the window to snapshot
 	 * @return an array of bytes of the image with the PNG format
 	 * @throws IOException if an error occurs during writing
+	 * @throws IllegalStateException if the QuPath user interface is not available
 	 */
 	public static byte[] snapshot(QuPathGUI qupath) throws IOException {
+		checkGuiAvailable(qupath);
+
 		// If we return the snapshot too quickly, we may not see the result of recent actions
-		try {
-			Platform.requestNextPulse();
-			Thread.sleep(50L);
-		} catch (InterruptedException e) {
-			throw new RuntimeException(e);
-		}
-		return getImageBytes(GuiTools.makeSnapshot(qupath, SnapshotType.MAIN_SCENE), "png");
+		return callMetrics.record("snapshot", () -> {
+			awaitRender(qupath.getStage().getScene());
+			return getImageBytes(GuiTools.makeSnapshot(qupath, SnapshotType.MAIN_SCENE), "png");
+		});
 	}
 
 	/**
@@ -77,42 +117,175 @@ public class QuPathEntryPoint extends QPEx {
 	 * @param viewer  the viewer to snapshot
 	 * @return an array of bytes of the image with the PNG format
 	 * @throws IOException if an error occurs during writing
+	 * @throws IllegalStateException if the QuPath user interface is not available
 	 */
 	public static byte[] snapshot(QuPathViewer viewer) throws IOException {
-		try {
-			Platform.requestNextPulse();
-			Thread.sleep(50L);
-		} catch (InterruptedException e) {
-			throw new RuntimeException(e);
-		}
-		return getImageBytes(GuiTools.makeViewerSnapshot(viewer), "png");
+		checkGuiAvailable(viewer);
+
+		return callMetrics.record("snapshot", () -> {
+			awaitRender(viewer.getView().getScene());
+			return getImageBytes(GuiTools.makeViewerSnapshot(viewer), "png");
+		});
 	}
 
 	/**
 	 * Same as {@link #snapshot(QuPathGUI)}, but encoded with the {@link Base64} scheme.
+	 *
+	 * @deprecated Base64 encoding makes the result a third larger and needs the whole result in memory.
+	 * Use {@link #snapshot(QuPathGUI)} or {@link #snapshotChunked(QuPathGUI)} instead
 	 */
+	@Deprecated
 	public static String snapshotBase64(QuPathGUI qupath) throws IOException {
 		return base64Encode(snapshot(qupath));
 	}
 
 	/**
 	 * Same as {@link #snapshot(QuPathViewer)}, but encoded with the {@link Base64} scheme.
+	 *
+	 * @deprecated Base64 encoding makes the result a third larger and needs the whole result in memory.
+	 * Use {@link #snapshot(QuPathViewer)} or {@link #snapshotChunked(QuPathViewer)} instead
 	 */
+	@Deprecated
 	public static String snapshotBase64(QuPathViewer viewer) throws IOException {
 		return base64Encode(snapshot(viewer));
 	}
 
+	/**
+	 * Same as {@link #snapshot(QuPathGUI)}, but returned as a {@link ChunkedTransfer} to read in chunks.
+	 */
+	public static ChunkedTransfer snapshotChunked(QuPathGUI qupath) throws IOException {
+		return ChunkedTransfer.ofBytes(snapshot(qupath));
+	}
+
+	/**
+	 * Same as {@link #snapshot(QuPathViewer)}, but returned as a {@link ChunkedTransfer} to read in chunks.
+	 */
+	public static ChunkedTransfer snapshotChunked(QuPathViewer viewer) throws IOException {
+		return ChunkedTransfer.ofBytes(snapshot(viewer));
+	}
+
 	/**
 	 * Open the image represented by the specified ProjectImageEntry in the
 	 * current QuPath instance.
 	 *
 	 * @param entry  the image entry to open
 	 * @return a boolean indicating if the image was opened
+	 * @throws IllegalStateException if the QuPath user interface is not available
+	 * (use {@link #readImageData(ProjectImageEntry)} instead)
 	 */
 	public static boolean openInQuPath(ProjectImageEntry<BufferedImage> entry) {
+		checkGuiAvailable(getQuPath());
+
 		return FXUtils.callOnApplicationThread(() -> getQuPath().openImageEntry(entry));
 	}
 
+	/**
+	 * @return whether this application runs without the QuPath user interface, in which case functions
+	 * such as {@link #snapshot(QuPathGUI)} or {@link #openInQuPath(ProjectImageEntry)} cannot be used
+	 */
+	public static boolean isHeadless() {
+		return getQuPath() == null;
+	}
+
+	/**
+	 * Load a project from a file, and make it the current project of the calling Python connection
+	 * (returned by {@link #getProject()}). This doesn't need the QuPath user interface, and doesn't change
+	 * the project opened in the user interface if there is one.
+	 *
+	 * @param path  the path of the project file, or of the directory containing it
+	 * @return the loaded project
+	 * @throws IOException when an error occurs while reading the project
+	 */
+	public static Project<BufferedImage> loadProject(String path) throws IOException {
+		Project<BufferedImage> project = ProjectIO.loadProject(new File(path), BufferedImage.class);
+		setBatchProjectAndImage(project, null);
+		return project;
+	}
+
+	/**
+	 * Read the image and the objects of a project entry, and make it the current image of the calling
+	 * Python connection (returned by {@link #getCurrentImageData()}).
+	 * This doesn't need the QuPath user interface, and doesn't change the image opened in the user interface
+	 * if there is one.
+	 *
+	 * @param entry  the project entry to read
+	 * @return the image of the provided entry
+	 * @throws IOException when an error occurs while reading the image
+	 */
+	public static ImageData<BufferedImage> readImageData(ProjectImageEntry<BufferedImage> entry) throws IOException {
+		ImageData<BufferedImage> imageData = entry.readImageData();
+		setBatchProjectAndImage(getProject(entry), imageData);
+		if (isHeadless()) {
+			eventDispatcher.setImageData(imageData);
+		}
+		return imageData;
+	}
+
+	/**
+	 * Save the objects and properties of an image to its project entry, for example after
+	 * {@link #readImageData(ProjectImageEntry)} and {@link #addPathObjects(ImageData, Collection, boolean)}.
+	 *
+	 * @param entry  the project entry to write to
+	 * @param imageData  the image to save
+	 * @throws IOException when an error occurs while writing the image
+	 */
+	public static void saveImageData(ProjectImageEntry<BufferedImage> entry, ImageData<BufferedImage> imageData) throws IOException {
+		entry.saveImageData(imageData);
+	}
+
+	/**
+	 * Start exporting the objects of all images of a project to a directory, in the background.
+	 * The returned job reports its progress and can be cancelled; see {@link ProjectExportJob} for the
+	 * supported formats.
+	 *
+	 * @param project  the project whose images should be exported
+	 * @param outputDirectory  the directory to write files to. It is created if it doesn't exist
+	 * @param formats  the formats to write, for example ["geojson", "columnar"]
+	 * @param type  the type of objects to export ("detection", "annotation", "cell", "tile"), or null or "all"
+	 *              to export objects of any type
+	 * @param nThreads  the number of images processed at the same time
+	 * @param maxMemoryBytes  the maximum number of bytes of used heap for a new image to be started, or 0 to not
+	 *                        limit memory usage
+	 * @return the started job
+	 * @throws IOException if the output directory cannot be created
+	 * @throws IllegalArgumentException if the number of threads is not positive, if the maximum memory is negative,
+	 * if a format is not supported, or if the object type is not recognized
+	 */
+	public static ProjectExportJob exportProject(
+			Project<BufferedImage> project,
+			String outputDirectory,
+			List<String> formats,
+			String type,
+			int nThreads,
+			long maxMemoryBytes
+	) throws IOException {
+		ProjectExportJob job = new ProjectExportJob(project.getImageList(), Path.of(outputDirectory), formats, type, nThreads, maxMemoryBytes);
+		job.whenDone(() -> {
+			JsonObject properties = new JsonObject();
+			properties.addProperty("name", "exportProject");
+			properties.addProperty("state", job.getState().name());
+			properties.addProperty("numImages", job.getNumImages());
+			properties.addProperty("numFailures", job.getFailures().size());
+			eventDispatcher.publish("jobDone", null, properties);
+		});
+		return job;
+	}
+
+	/**
+	 * Same as {@link #exportProject(Project, String, List, String, int, long)}, but exporting detections as GeoJSON
+	 * and measurement tables, with one thread per processor and without memory limit.
+	 */
+	public static ProjectExportJob exportProject(Project<BufferedImage> project, String outputDirectory) throws IOException {
+		return exportProject(
+				project,
+				outputDirectory,
+				List.of(ProjectExportJob.GEOJSON_FORMAT, ProjectExportJob.TSV_FORMAT),
+				"detection",
+				Runtime.getRuntime().availableProcessors(),
+				0
+		);
+	}
+
 	/**
 	 * Return the measurement table in text format of all detections
 	 * of the provided image.
@@ -168,9 +341,11 @@ public class QuPathEntryPoint extends QPEx {
 		if (imageData == null || pathObjects == null || pathObjects.isEmpty()) {
 			return Collections.emptyList();
 		} else {
-			var table = new ObservableMeasurementTableData();
-			table.setImageData(imageData, pathObjects);
-			return table.getRowStrings("\t", PathTableData.DEFAULT_DECIMAL_PLACES, null);
+			return callHeavy("getMeasurementTableRows", () -> {
+				var table = new ObservableMeasurementTableData();
+				table.setImageData(imageData, pathObjects);
+				return table.getRowStrings("\t", PathTableData.DEFAULT_DECIMAL_PLACES, null);
+			});
 		}
 	}
 
@@ -201,7 +376,10 @@ public class QuPathEntryPoint extends QPEx {
 	 * @return a list of PathObject represented by the GeoJSON object
 	 */
 	public static List<PathObject> toPathObjects(String geoJson) {
-		return toPathObjects(GsonTools.getInstance().fromJson(geoJson, JsonElement.class));
+		return callMetrics.record(
+				"toPathObjects",
+				() -> toPathObjects(GsonTools.getInstance().fromJson(geoJson, JsonElement.class))
+		);
 	}
 
 	/**
@@ -231,6 +409,140 @@ public class QuPathEntryPoint extends QPEx {
 		}
 	}
 
+	/**
+	 * Start creating a list of {@link PathObject} from a GeoJSON representation in the background.
+	 * <p>
+	 * Contrary to {@link #toPathObjects(String)}, features are read one by one and converted in parallel
+	 * on a dedicated pool of threads. The returned task can be used to follow the progress of the conversion,
+	 * to cancel it, or to retrieve the result.
+	 *
+	 * @param geoJson  the GeoJSON representation (a Feature, an array of Features, or a FeatureCollection) to convert
+	 * @param nThreads  the number of threads to use to convert features
+	 * @return a task creating the PathObjects
+	 */
+	public static GeoJsonImportTask importPathObjects(String geoJson, int nThreads) {
+		return new GeoJsonImportTask(new StringReader(geoJson), nThreads);
+	}
+
+	/**
+	 * Same as {@link #importPathObjects(String, int)}, but with a UTF-8 encoded GeoJSON representation.
+	 * This avoids converting large representations to strings.
+	 */
+	public static GeoJsonImportTask importPathObjects(byte[] geoJson, int nThreads) {
+		return new GeoJsonImportTask(
+				new InputStreamReader(new ByteArrayInputStream(geoJson), StandardCharsets.UTF_8),
+				nThreads
+		);
+	}
+
+	/**
+	 * Same as {@link #importPathObjects(String, int)}, but with a GeoJSON representation read from a UTF-8 encoded file.
+	 *
+	 * @throws IOException when an error occurs while opening the file
+	 */
+	public static GeoJsonImportTask importPathObjectsFromFile(String path, int nThreads) throws IOException {
+		Reader reader = Files.newBufferedReader(Path.of(path), StandardCharsets.UTF_8);
+		try {
+			return new GeoJsonImportTask(reader, nThreads);
+		} catch (RuntimeException e) {
+			// The task only closes the reader once started
+			reader.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Add PathObjects to the hierarchy of the provided image as a single operation, firing a single hierarchy
+	 * change event. This is much faster than adding objects one by one when many objects are added.
+	 *
+	 * @param imageData  the image whose hierarchy should contain the objects
+	 * @param pathObjects  the objects to add
+	 * @param resolveHierarchy  whether to insert the objects at their correct location in the hierarchy
+	 *                          (for example, detections under the annotation containing them). If false,
+	 *                          objects are added as children of the root object, which is faster
+	 * @return the number of objects added
+	 */
+	public static int addPathObjects(ImageData<?> imageData, Collection<? extends PathObject> pathObjects, boolean resolveHierarchy) {
+		if (imageData == null || pathObjects == null || pathObjects.isEmpty()) {
+			return 0;
+		}
+
+		return callMetrics.record("addPathObjects", () -> {
+			PathObjectHierarchy hierarchy = imageData.getHierarchy();
+			if (resolveHierarchy) {
+				hierarchy.insertPathObjects(pathObjects);
+			} else {
+				hierarchy.addObjects(pathObjects);
+			}
+			return pathObjects.size();
+		});
+	}
+
+	/**
+	 * Create PathObjects from a UTF-8 encoded GeoJSON representation and add them to the hierarchy of the provided
+	 * image as a single operation. Features are converted in parallel with {@link #importPathObjects(byte[], int)}
+	 * using all available processors, and a single hierarchy change event is fired.
+	 *
+	 * @param imageData  the image whose hierarchy should contain the objects
+	 * @param geoJson  the UTF-8 encoded GeoJSON representation (a Feature, an array of Features, or a FeatureCollection)
+	 * @param resolveHierarchy  whether to insert the objects at their correct location in the hierarchy
+	 * @return the number of objects added
+	 * @throws InterruptedException if the calling thread is interrupted while waiting for the conversion
+	 * @throws ExecutionException if an error occurred while converting the GeoJSON representation
+	 * @see #addPathObjects(ImageData, Collection, boolean)
+	 */
+	public static int addPathObjects(ImageData<?> imageData, byte[] geoJson, boolean resolveHierarchy) throws InterruptedException, ExecutionException {
+		return addPathObjects(
+				imageData,
+				getImportedObjects(importPathObjects(geoJson, Runtime.getRuntime().availableProcessors())),
+				resolveHierarchy
+		);
+	}
+
+	/**
+	 * Same as {@link #addPathObjects(ImageData, byte[], boolean)}, but with a GeoJSON representation given as a string.
+	 */
+	public static int addPathObjects(ImageData<?> imageData, String geoJson, boolean resolveHierarchy) throws InterruptedException, ExecutionException {
+		return addPathObjects(
+				imageData,
+				getImportedObjects(importPathObjects(geoJson, Runtime.getRuntime().availableProcessors())),
+				resolveHierarchy
+		);
+	}
+
+	/**
+	 * Create PathObjects from packed Well-Known Binary (WKB) representations of their geometries and add them
+	 * to the hierarchy of the provided image as a single operation, firing a single hierarchy change event.
+	 *
+	 * @param imageData  the image whose hierarchy should contain the objects
+	 * @param packedWkb  the packed WKB representations of the geometries, as described in
+	 *                   {@link #toPathObjects(byte[], String, List, List, int, int)}
+	 * @param objectType  the type of objects to create: "annotation", "detection", or "tile"
+	 * @param classifications  the classification of each object, or null to leave all objects unclassified
+	 * @param names  the name of each object, or null to not set names
+	 * @param z  the z-slice the objects should belong to
+	 * @param t  the time point the objects should belong to
+	 * @param resolveHierarchy  whether to insert the objects at their correct location in the hierarchy
+	 * @return the number of objects added
+	 * @see #addPathObjects(ImageData, Collection, boolean)
+	 */
+	public static int addPathObjects(
+			ImageData<?> imageData,
+			byte[] packedWkb,
+			String objectType,
+			List<String> classifications,
+			List<String> names,
+			int z,
+			int t,
+			boolean resolveHierarchy
+	) {
+		return addPathObjects(
+				imageData,
+				toPathObjects(packedWkb, objectType, classifications, names, z, t),
+				resolveHierarchy
+		);
+	}
+
 	/**
 	 * Create a list of {@link ROI} from a GeoJSON representation.
 	 *
@@ -241,30 +553,196 @@ public class QuPathEntryPoint extends QPEx {
 		return GsonTools.getInstance().fromJson(geoJson, new TypeToken<List<ROI>>() {}.getType());
 	}
 
+	/**
+	 * Create a {@link ROI} on the default plane from a Well-Known Binary (WKB) representation of its geometry.
+	 *
+	 * @param wkb  the WKB representation to convert
+	 * @return a ROI represented by the WKB representation
+	 * @throws IllegalArgumentException if the provided bytes are not a valid WKB representation
+	 */
+	public static ROI toROI(byte[] wkb) {
+		return toROI(wkb, 0, 0);
+	}
+
+	/**
+	 * Create a {@link ROI} from a Well-Known Binary (WKB) representation of its geometry.
+	 *
+	 * @param wkb  the WKB representation to convert
+	 * @param z  the z-slice the ROI should belong to
+	 * @param t  the time point the ROI should belong to
+	 * @return a ROI represented by the WKB representation
+	 * @throws IllegalArgumentException if the provided bytes are not a valid WKB representation
+	 */
+	public static ROI toROI(byte[] wkb, int z, int t) {
+		return WkbTools.toROI(wkb, ImagePlane.getPlane(z, t));
+	}
+
+	/**
+	 * Create a list of {@link PathObject} from packed Well-Known Binary (WKB) representations of their geometries.
+	 * <p>
+	 * The packed representation starts with the number of geometries as a little-endian 32-bit integer,
+	 * followed by each WKB representation preceded by its length in bytes as a little-endian 32-bit integer.
+	 * This is the format returned by {@link #getROIsWKB(Collection)}, except that missing geometries (of length 0)
+	 * are not accepted. Measurements can then be added with {@link #addMeasurementColumns(Collection, List, List)}.
+	 *
+	 * @param packedWkb  the packed WKB representations of the geometries
+	 * @param objectType  the type of objects to create: "annotation", "detection", or "tile"
+	 * @param classifications  the classification of each object, or null to leave all objects unclassified.
+	 *                         Null or empty elements correspond to unclassified objects
+	 * @param names  the name of each object, or null to not set names. Null elements are ignored
+	 * @param z  the z-slice the objects should belong to
+	 * @param t  the time point the objects should belong to
+	 * @return a list of PathObject represented by the provided geometries and properties
+	 * @throws IllegalArgumentException if the provided bytes are not a valid packed WKB representation, if the
+	 * object type is not supported, or if the number of classifications or names doesn't match the number of geometries
+	 */
+	public static List<PathObject> toPathObjects(
+			byte[] packedWkb,
+			String objectType,
+			List<String> classifications,
+			List<String> names,
+			int z,
+			int t
+	) {
+		List<ROI> rois = WkbTools.toROIs(packedWkb, ImagePlane.getPlane(z, t));
+		if (classifications != null && classifications.size() != rois.size()) {
+			throw new IllegalArgumentException(String.format(
+					"The number of classifications (%d) doesn't match the number of geometries (%d)", classifications.size(), rois.size()
+			));
+		}
+		if (names != null && names.size() != rois.size()) {
+			throw new IllegalArgumentException(String.format(
+					"The number of names (%d) doesn't match the number of geometries (%d)", names.size(), rois.size()
+			));
+		}
+
+		return callMetrics.record("toPathObjects", () -> toStream(IntStream.range(0, rois.size()).boxed().toList(), 100)
+				.map(i -> {
+					String classification = classifications == null ? null : classifications.get(i);
+					PathObject pathObject = createPathObject(
+							objectType,
+							rois.get(i),
+							classification == null || classification.isEmpty() ? null : PathClass.fromString(classification)
+					);
+
+					if (names != null && names.get(i) != null) {
+						pathObject.setName(names.get(i));
+					}
+					return pathObject;
+				})
+				.toList()
+		);
+	}
+
+	/**
+	 * Set measurements of the provided PathObjects from columns of little-endian 64-bit floating point numbers,
+	 * as returned by {@link #getMeasurementColumns(Collection, List)}. NaN values are skipped.
+	 *
+	 * @param pathObjects  the PathObjects whose measurements should be set
+	 * @param names  the names of the measurements to set
+	 * @param columns  one array of bytes per measurement name, each containing one value per PathObject
+	 *                 (in the iteration order of the provided collection)
+	 * @throws IllegalArgumentException if the number of columns doesn't match the number of names, or if a column
+	 * doesn't contain one value per PathObject
+	 */
+	public static void addMeasurementColumns(Collection<? extends PathObject> pathObjects, List<String> names, List<byte[]> columns) {
+		if (names.size() != columns.size()) {
+			throw new IllegalArgumentException(String.format(
+					"The number of columns (%d) doesn't match the number of names (%d)", columns.size(), names.size()
+			));
+		}
+		List<? extends PathObject> objects = new ArrayList<>(pathObjects);
+		List<double[]> values = columns.stream().map(BinaryTools::toDoubles).toList();
+		for (double[] column: values) {
+			if (column.length != objects.size()) {
+				throw new IllegalArgumentException(String.format(
+						"A column has %d values instead of %d", column.length, objects.size()
+				));
+			}
+		}
+
+		for (int i = 0; i < objects.size(); i++) {
+			try (MeasurementList measurementList = objects.get(i).getMeasurementList()) {
+				for (int j = 0; j < names.size(); j++) {
+					if (!Double.isNaN(values.get(j)[i])) {
+						measurementList.put(names.get(j), values.get(j)[i]);
+					}
+				}
+			}
+		}
+	}
+
 	/**
 	 * Convert a collection of PathObjects to a GeoJSON FeatureCollection.
 	 * If there is a chance the resulting string will be too long, prefer instead
-	 * {@link #toFeatureCollections(Collection, int)} to partition objects into separate feature collections.
+	 * {@link #openFeatureCursor(Collection, int)} to convert objects batch by batch.
 	 *
 	 * @param pathObjects  the PathObjects to convert
 	 * @return a GeoJSON FeatureCollection representing the provided PathObjects
 	 */
 	public static String toFeatureCollection(Collection<? extends PathObject> pathObjects) {
-		return GsonTools.getInstance().toJson(FeatureCollection.wrap(pathObjects));
+		return callHeavy("toFeatureCollection", () -> GsonTools.getInstance().toJson(FeatureCollection.wrap(pathObjects)));
 	}
 
 	/**
 	 * Convert a collection of PathObjects to GeoJSON FeatureCollections, partitioning into separate collections.
 	 * This can be useful for performance reasons, and also to avoid the character limit for strings in Java and Python.
+	 * <p>
+	 * Note that all collections are held in memory at the same time. For a large number of objects,
+	 * {@link #openFeatureCursor(Collection, int)} is preferable.
 	 *
 	 * @param pathObjects  the PathObjects to convert
 	 * @param chunkSize  the size of each partition
 	 * @return a list of GeoJSON FeatureCollection representing the provided PathObjects
 	 */
 	public static List<String> toFeatureCollections(Collection<? extends PathObject> pathObjects, int chunkSize) {
-		return toStream(Lists.partition(new ArrayList<>(pathObjects), chunkSize), 4)
+		return callMetrics.record("toFeatureCollections", () -> toStream(Lists.partition(new ArrayList<>(pathObjects), chunkSize), 4)
 				.map(QuPathEntryPoint::toFeatureCollection)
-				.toList();
+				.toList()
+		);
+	}
+
+	/**
+	 * Create a cursor that converts a collection of PathObjects to GeoJSON FeatureCollections batch by batch,
+	 * when {@link FeatureCursor#nextBatch()} or {@link FeatureCursor#nextBatchBytes()} is called.
+	 * Only one batch is held in memory at a time, so this is suitable for exporting millions of objects.
+	 *
+	 * @param pathObjects  the PathObjects to convert
+	 * @param batchSize  the maximum number of objects of each FeatureCollection
+	 * @return a cursor over GeoJSON FeatureCollections representing the provided PathObjects
+	 */
+	public static FeatureCursor openFeatureCursor(Collection<? extends PathObject> pathObjects, int batchSize) {
+		return new FeatureCursor(pathObjects, batchSize);
+	}
+
+	/**
+	 * Convert a collection of PathObjects to a UTF-8 encoded GeoJSON FeatureCollection, returned as a
+	 * {@link ChunkedTransfer} to read in chunks.
+	 * <p>
+	 * Objects are written one by one to a temporary file, so the FeatureCollection never needs to fit in memory
+	 * and is not limited by the maximum length of a string. The file is deleted when the transfer is closed,
+	 * or when QuPath exits.
+	 *
+	 * @param pathObjects  the PathObjects to convert
+	 * @return a transfer of the GeoJSON FeatureCollection representing the provided PathObjects
+	 * @throws IOException when an error occurs while writing the temporary file
+	 */
+	public static ChunkedTransfer toFeatureCollectionChunked(Collection<? extends PathObject> pathObjects) throws IOException {
+		return callHeavy("toFeatureCollectionChunked", () -> {
+			Path file = ChunkedTransfer.createTempFile(".geojson");
+			try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+				FeatureCursor.writeFeatureCollection(
+						GsonTools.getInstance(),
+						List.copyOf(pathObjects).iterator(),
+						Integer.MAX_VALUE,
+						writer
+				);
+			} catch (IOException e) {
+				Files.deleteIfExists(file);
+				throw e;
+			}
+			return ChunkedTransfer.ofFile(file);
+		});
 	}
 
 	/**
@@ -274,9 +752,10 @@ public class QuPathEntryPoint extends QPEx {
 	 * @return a list of GeoJSON features representing the provided PathObjects
 	 */
 	public static List<String> toGeoJsonFeatureList(Collection<? extends PathObject> pathObjects) {
-		return toStream(pathObjects, 100)
+		return callHeavy("toGeoJsonFeatureList", () -> toStream(pathObjects, 100)
 				.map(QuPathEntryPoint::toGeoJsonFeature)
-				.toList();
+				.toList()
+		);
 	}
 
 	/**
@@ -313,11 +792,115 @@ public class QuPathEntryPoint extends QPEx {
 	 * @return a list of measurements values present in the provided PathObjects
 	 */
 	public static List<Double> getMeasurements(Collection<? extends PathObject> pathObjects, String name) {
-		return pathObjects.stream()
+		return callMetrics.record("getMeasurements", () -> pathObjects.stream()
 				.map(p -> p.getMeasurements().getOrDefault(name, null))
 				.filter(Objects::nonNull)
 				.map(Number::doubleValue)
-				.toList();
+				.toList()
+		);
+	}
+
+	/**
+	 * Get the measurement values corresponding to the provided measurement name of the provided PathObjects,
+	 * as a primitive array.
+	 * <p>
+	 * Contrary to {@link #getMeasurements(Collection, String)}, the returned array has one value per PathObject
+	 * (in the iteration order of the provided collection), and missing values are represented by NaN.
+	 *
+	 * @param pathObjects  the PathObjects whose measurement values should be retrieved
+	 * @param name  the name of the measurement to retrieve
+	 * @return an array of measurement values of the provided PathObjects
+	 */
+	public static double[] getMeasurementArray(Collection<? extends PathObject> pathObjects, String name) {
+		return callMetrics.record("getMeasurementArray", () -> getMeasurementArrays(pathObjects, List.of(name))[0]);
+	}
+
+	/**
+	 * Get the values of several measurements of the provided PathObjects, as one column of little-endian
+	 * 64-bit floating point numbers per measurement.
+	 * <p>
+	 * Each column has one value per PathObject (in the iteration order of the provided collection), and
+	 * missing values are represented by NaN. Columns can be read from Python with
+	 * {@code numpy.frombuffer(column, dtype="<f8")}, and {@link #getObjectIdBytes(Collection)} can be used
+	 * to retrieve the corresponding object IDs.
+	 *
+	 * @param pathObjects  the PathObjects whose measurement values should be retrieved
+	 * @param names  the names of the measurements to retrieve
+	 * @return a list containing one array of bytes per provided measurement name
+	 */
+	public static List<byte[]> getMeasurementColumns(Collection<? extends PathObject> pathObjects, List<String> names) {
+		return callMetrics.record("getMeasurementColumns", () -> Arrays.stream(getMeasurementArrays(pathObjects, names))
+				.map(BinaryTools::toBytes)
+				.toList()
+		);
+	}
+
+	/**
+	 * Retrieve the IDs of a collection of PathObjects as bytes. This is more compact than {@link #getObjectIds(Collection)}.
+	 * <p>
+	 * Each ID takes 16 bytes (in the iteration order of the provided collection), and can be converted
+	 * with Python's {@code uuid.UUID(bytes=...)}.
+	 *
+	 * @param pathObjects  the PathObjects whose IDs should be retrieved
+	 * @return an array of bytes containing the IDs of the provided PathObjects
+	 */
+	public static byte[] getObjectIdBytes(Collection<? extends PathObject> pathObjects) {
+		return callMetrics.record(
+				"getObjectIdBytes",
+				() -> BinaryTools.toBytes(pathObjects.stream().map(PathObject::getID).toList())
+		);
+	}
+
+	/**
+	 * Start recording the objects added to, removed from, and changed in the hierarchy of an image, so that Python
+	 * clients can mirror the hierarchy by polling changes instead of fetching all objects again.
+	 * The returned feed must be closed when it is not needed anymore.
+	 *
+	 * @param imageData  the image whose hierarchy should be listened to
+	 * @return a feed of the changes of the hierarchy, keeping at most {@link HierarchyChangeFeed#DEFAULT_MAX_CHANGES} changes
+	 */
+	public static HierarchyChangeFeed subscribeHierarchyChanges(ImageData<?> imageData) {
+		return subscribeHierarchyChanges(imageData, HierarchyChangeFeed.DEFAULT_MAX_CHANGES);
+	}
+
+	/**
+	 * Same as {@link #subscribeHierarchyChanges(ImageData)}, but with a custom number of changes to keep.
+	 *
+	 * @throws IllegalArgumentException if the maximum number of changes is not positive
+	 */
+	public static HierarchyChangeFeed subscribeHierarchyChanges(ImageData<?> imageData, int maxChanges) {
+		return new HierarchyChangeFeed(imageData, maxChanges);
+	}
+
+	/**
+	 * Write the measurements of PathObjects to a columnar binary file, which is much faster to write and read than
+	 * {@link #getMeasurementTable(ImageData, Collection)} and keeps the full precision of the values.
+	 * <p>
+	 * The file contains the IDs, types, names, classifications, and centroids of the objects, followed by one
+	 * column per measurement. Uncompressed columns can be memory-mapped and read without copy from Python.
+	 * See {@link ColumnarTableWriter} for a description of the format.
+	 *
+	 * @param pathObjects  the PathObjects to write, one row per object in the iteration order of the collection
+	 * @param measurementNames  the names of the measurements to write, or null to write all measurements
+	 *                          of the provided objects
+	 * @param path  the path of the file to write. It is replaced if it already exists
+	 * @param compress  whether to compress columns with the deflate algorithm when it makes them noticeably smaller.
+	 *                  Compressed columns cannot be memory-mapped
+	 * @return the number of bytes written
+	 * @throws IOException when an error occurs while writing the file
+	 */
+	public static long writeMeasurementTable(
+			Collection<? extends PathObject> pathObjects,
+			List<String> measurementNames,
+			String path,
+			boolean compress
+	) throws IOException {
+		return callHeavy("writeMeasurementTable", () -> ColumnarTableWriter.write(
+				pathObjects,
+				measurementNames == null ? getMeasurementNames(pathObjects) : measurementNames,
+				Path.of(path),
+				compress
+		));
 	}
 
 	/**
@@ -340,6 +923,170 @@ public class QuPathEntryPoint extends QPEx {
 		return GsonTools.getInstance().toJson(roi);
 	}
 
+	/**
+	 * Convert a {@link ROI} to a little-endian Well-Known Binary (WKB) representation of its geometry.
+	 * This can be read from Python with {@code shapely.from_wkb}.
+	 *
+	 * @param roi  the ROI to convert
+	 * @return a WKB representation of the provided ROI
+	 */
+	public static byte[] toWKB(ROI roi) {
+		return WkbTools.toWkb(roi);
+	}
+
+	/**
+	 * Convert the ROIs of a collection of PathObjects to packed Well-Known Binary (WKB) representations,
+	 * as described in {@link #toPathObjects(byte[], String, List, List, int, int)}.
+	 * Properties of the objects can be retrieved with {@link #getObjectIdBytes(Collection)} and
+	 * {@link #getMeasurementColumns(Collection, List)}.
+	 * <p>
+	 * Objects without ROI are not skipped (so that geometries stay aligned with the other properties of the objects),
+	 * but are represented by a geometry of length 0.
+	 *
+	 * @param pathObjects  the PathObjects whose ROIs should be converted
+	 * @return the packed WKB representations of the ROIs of the provided PathObjects
+	 */
+	public static byte[] getROIsWKB(Collection<? extends PathObject> pathObjects) {
+		return callHeavy("getROIsWKB", () -> WkbTools.toPackedWkb(pathObjects.stream().map(PathObject::getROI).toList()));
+	}
+
+	/**
+	 * Get the objects of an image whose bounding box intersects a region, using the spatial index of the hierarchy.
+	 * <p>
+	 * The returned list is not copied to Python: IDs, geometries, or measurements of the objects can then be
+	 * retrieved with {@link #getObjectIdBytes(Collection)}, {@link #getROIsWKB(Collection)}, or
+	 * {@link #getMeasurementColumns(Collection, List)}.
+	 *
+	 * @param imageData  the image containing the objects
+	 * @param x  the x-coordinate of the region, in pixels of the full resolution image
+	 * @param y  the y-coordinate of the region, in pixels of the full resolution image
+	 * @param width  the width of the region, in pixels of the full resolution image
+	 * @param height  the height of the region, in pixels of the full resolution image
+	 * @param z  the z-slice of the region
+	 * @param t  the time point of the region
+	 * @param type  the type of objects to return ("detection", "annotation", "cell", "tile"), or null or "all"
+	 *              to return objects of any type
+	 * @return the objects of the provided type intersecting the provided region
+	 * @throws IllegalArgumentException if the type is not recognized
+	 */
+	public static List<PathObject> getObjectsInRegion(ImageData<?> imageData, int x, int y, int width, int height, int z, int t, String type) {
+		ObjectType objectType = ObjectType.fromString(type);
+
+		return callMetrics.record("getObjectsInRegion", () -> List.copyOf(objectType.getObjectsForRegion(
+				imageData.getHierarchy(),
+				ImageRegion.createInstance(x, y, width, height, z, t)
+		)));
+	}
+
+	/**
+	 * Get the objects of an image located within a ROI, using the spatial index of the hierarchy.
+	 * Detections are located within the ROI if their centroid is, and other objects if their ROI
+	 * intersects the provided ROI.
+	 * <p>
+	 * As with {@link #getObjectsInRegion(ImageData, int, int, int, int, int, int, String)}, the returned list
+	 * is meant to be passed to other functions of this class.
+	 *
+	 * @param imageData  the image containing the objects
+	 * @param roi  the ROI the objects should be located in
+	 * @param type  the type of objects to return ("detection", "annotation", "cell", "tile"), or null or "all"
+	 *              to return objects of any type
+	 * @return the objects of the provided type located within the provided ROI
+	 * @throws IllegalArgumentException if the type is not recognized
+	 */
+	public static List<PathObject> getObjectsInROI(ImageData<?> imageData, ROI roi, String type) {
+		ObjectType objectType = ObjectType.fromString(type);
+
+		return callMetrics.record(
+				"getObjectsInROI",
+				() -> List.copyOf(objectType.getObjectsForROI(imageData.getHierarchy(), roi))
+		);
+	}
+
+	/**
+	 * Get the objects of an image whose centroid is the closest to a point, using the spatial index of the hierarchy.
+	 * <p>
+	 * Objects are searched in a square window around the point, which is enlarged until enough objects are
+	 * found, so that only objects close to the point are considered.
+	 *
+	 * @param imageData  the image containing the objects
+	 * @param x  the x-coordinate of the point, in pixels of the full resolution image
+	 * @param y  the y-coordinate of the point, in pixels of the full resolution image
+	 * @param z  the z-slice of the objects to consider
+	 * @param t  the time point of the objects to consider
+	 * @param k  the maximum number of objects to return
+	 * @param type  the type of objects to return ("detection", "annotation", "cell", "tile"), or null or "all"
+	 *              to return objects of any type
+	 * @return at most k objects of the provided type, sorted by increasing distance between their centroid and the
+	 * provided point
+	 * @throws IllegalArgumentException if k is negative or if the type is not recognized
+	 */
+	public static List<PathObject> getNearestObjects(ImageData<?> imageData, double x, double y, int z, int t, int k, String type) {
+		if (k < 0) {
+			throw new IllegalArgumentException(String.format("The number of objects %d is negative", k));
+		}
+		ObjectType objectType = ObjectType.fromString(type);
+
+		return callMetrics.record("getNearestObjects", () -> {
+			if (k == 0) {
+				return List.of();
+			}
+
+			PathObjectHierarchy hierarchy = imageData.getHierarchy();
+			// Without image dimensions, all objects are considered
+			double maxRadius = imageData.getServer() == null ?
+					0 :
+					Math.hypot(imageData.getServer().getWidth(), imageData.getServer().getHeight());
+
+			double radius = Math.min(INITIAL_NEAREST_OBJECTS_RADIUS, maxRadius);
+			while (true) {
+				// Objects whose centroid is within the radius have a bounding box intersecting the window,
+				// so the result is exact once the k-th object is within the radius
+				int windowX = (int) Math.floor(x - radius);
+				int windowY = (int) Math.floor(y - radius);
+				int windowSize = (int) Math.ceil(2 * radius) + 1;
+				Collection<PathObject> candidates = radius >= maxRadius ?
+						objectType.getObjects(hierarchy).stream()
+								.filter(p -> p.hasROI() && p.getROI().getZ() == z && p.getROI().getT() == t)
+								.toList() :
+						objectType.getObjectsForRegion(hierarchy, ImageRegion.createInstance(windowX, windowY, windowSize, windowSize, z, t));
+
+				List<PathObject> nearestObjects = candidates.stream()
+						.filter(PathObject::hasROI)
+						.sorted(Comparator.comparingDouble(p -> getCentroidDistance(p, x, y)))
+						.limit(k)
+						.toList();
+
+				if (radius >= maxRadius ||
+						(nearestObjects.size() == k && getCentroidDistance(nearestObjects.getLast(), x, y) <= radius)) {
+					return nearestObjects;
+				}
+				radius = Math.min(radius * 2, maxRadius);
+			}
+		});
+	}
+
+	/**
+	 * Get the objects of an image with the provided classification.
+	 *
+	 * @param imageData  the image containing the objects
+	 * @param classification  the classification of the objects to return (for example "Tumor" or "Tumor: Positive"),
+	 *                        or null or an empty string to return unclassified objects
+	 * @param type  the type of objects to return ("detection", "annotation", "cell", "tile"), or null or "all"
+	 *              to return objects of any type
+	 * @return the objects of the provided type with exactly the provided classification
+	 * @throws IllegalArgumentException if the type is not recognized
+	 */
+	public static List<PathObject> getObjectsByClassification(ImageData<?> imageData, String classification, String type) {
+		PathClass pathClass = classification == null || classification.isEmpty() ? null : PathClass.fromString(classification);
+
+		ObjectType objectType = ObjectType.fromString(type);
+
+		return callMetrics.record("getObjectsByClassification", () -> objectType.getObjects(imageData.getHierarchy()).stream()
+				.filter(p -> Objects.equals(p.getPathClass(), pathClass))
+				.toList()
+		);
+	}
+
 	/**
 	 * Get a hyperstack of an entire image at the provided downsample.
 	 *
@@ -401,49 +1148,104 @@ public class QuPathEntryPoint extends QPEx {
 	 * @throws IOException when an error occurs while reading the image
 	 */
 	public static byte[] getTiffStack(ImageServer<BufferedImage> server, RegionRequest request) throws IOException {
-		return toTiffBytes(IJTools.extractHyperstack(server, request));
+		return callHeavy("getTiffStack", () -> toTiffBytes(IJTools.extractHyperstack(server, request)));
 	}
 
 	/**
 	 * Same as {@link #getTiffStack(ImageServer, double)}, but encoded with the {@link Base64} scheme.
+	 *
+	 * @deprecated Base64 encoding makes the result a third larger and needs the whole result in memory.
+	 * Use {@link #getTiffStack(ImageServer, RegionRequest)} or {@link #getTiffStackChunked(ImageServer, RegionRequest)} instead
 	 */
+	@Deprecated
 	public static String getTiffStackBase64(ImageServer<BufferedImage> server, double downsample) throws IOException {
 		return base64Encode(getTiffStack(server, downsample));
 	}
 
 	/**
 	 * Same as {@link #getTiffStack(ImageServer, double, int, int, int, int)}, but encoded with the {@link Base64} scheme.
+	 *
+	 * @deprecated Base64 encoding makes the result a third larger and needs the whole result in memory.
+	 * Use {@link #getTiffStack(ImageServer, RegionRequest)} or {@link #getTiffStackChunked(ImageServer, RegionRequest)} instead
 	 */
+	@Deprecated
 	public static String getTiffStackBase64(ImageServer<BufferedImage> server, double downsample, int x, int y, int width, int height) throws IOException {
 		return base64Encode(getTiffStack(server, downsample, x, y, width, height));
 	}
 
 	/**
 	 * Same as {@link #getTiffStack(ImageServer, double, int, int, int, int, int, int)}, but encoded with the {@link Base64} scheme.
+	 *
+	 * @deprecated Base64 encoding makes the result a third larger and needs the whole result in memory.
+	 * Use {@link #getTiffStack(ImageServer, RegionRequest)} or {@link #getTiffStackChunked(ImageServer, RegionRequest)} instead
 	 */
+	@Deprecated
 	public static String getTiffStackBase64(ImageServer<BufferedImage> server, double downsample, int x, int y, int width, int height, int z, int t) throws IOException {
 		return base64Encode(getTiffStack(server, downsample, x, y, width, height, z, t));
 	}
 
 	/**
 	 * Same as {@link #getTiffStack(ImageServer, RegionRequest)}, but encoded with the {@link Base64} scheme.
+	 *
+	 * @deprecated Base64 encoding makes the result a third larger and needs the whole result in memory.
+	 * Use {@link #getTiffStack(ImageServer, RegionRequest)} or {@link #getTiffStackChunked(ImageServer, RegionRequest)} instead
 	 */
+	@Deprecated
 	public static String getTiffStackBase64(ImageServer<BufferedImage> server, RegionRequest request) throws IOException {
 		return base64Encode(getTiffStack(server, request));
 	}
 
 	/**
-	 * Read the first z-slice and first time point of the provided image at the provided downsample
-	 * and return an image with the provided format.
+	 * Same as {@link #getTiffStack(ImageServer, double)}, but returned as a {@link ChunkedTransfer} to read in chunks.
 	 *
-	 * @param server  the image to open
-	 * @param downsample  the downsample to use when reading the image
-	 * @param format  the format the result should have
-	 * @return an array of bytes described the requested image with the provided format
-	 * @throws IOException when an error occurs while reading the image
+	 * @see #getTiffStackChunked(ImageServer, RegionRequest)
 	 */
-	public static byte[] getImageBytes(ImageServer<BufferedImage> server, double downsample, String format) throws IOException {
-		return getImageBytes(server, downsample, 0, 0, server.getWidth(), server.getHeight(), format);
+	public static ChunkedTransfer getTiffStackChunked(ImageServer<BufferedImage> server, double downsample) throws IOException {
+		return getTiffStackChunked(
+				server,
+				RegionRequest.createInstance(server.getPath(), downsample, 0, 0, server.getWidth(), server.getHeight(), 0, 0)
+		);
+	}
+
+	/**
+	 * Same as {@link #getTiffStack(ImageServer, RegionRequest)}, but returned as a {@link ChunkedTransfer} to read
+	 * in chunks.
+	 * <p>
+	 * The TIFF is written to a temporary file instead of an array of bytes, so neither the encoded hyperstack nor
+	 * its transferred copy need to fit in memory at once. The file is deleted when the transfer is closed, or when
+	 * QuPath exits.
+	 *
+	 * @param server  the image to open
+	 * @param request  the region to read. All z-stacks from 0 to {@link RegionRequest#getZ()} and time points
+	 *                 from 0 to {@link RegionRequest#getT()} will be retrieved
+	 * @return a transfer of the TIFF encoded hyperstack
+	 * @throws IOException when an error occurs while reading the image or writing the TIFF file
+	 */
+	public static ChunkedTransfer getTiffStackChunked(ImageServer<BufferedImage> server, RegionRequest request) throws IOException {
+		return callHeavy("getTiffStackChunked", () -> {
+			ImagePlus imp = IJTools.extractHyperstack(server, request);
+
+			Path file = ChunkedTransfer.createTempFile(".tif");
+			if (!new FileSaver(imp).saveAsTiff(file.toString())) {
+				Files.deleteIfExists(file);
+				throw new IOException(String.format("Cannot write TIFF to %s", file));
+			}
+			return ChunkedTransfer.ofFile(file);
+		});
+	}
+
+	/**
+	 * Read the first z-slice and first time point of the provided image at the provided downsample
+	 * and return an image with the provided format.
+	 *
+	 * @param server  the image to open
+	 * @param downsample  the downsample to use when reading the image
+	 * @param format  the format the result should have
+	 * @return an array of bytes described the requested image with the provided format
+	 * @throws IOException when an error occurs while reading the image
+	 */
+	public static byte[] getImageBytes(ImageServer<BufferedImage> server, double downsample, String format) throws IOException {
+		return getImageBytes(server, downsample, 0, 0, server.getWidth(), server.getHeight(), format);
 	}
 
 	/**
@@ -489,6 +1291,9 @@ public class QuPathEntryPoint extends QPEx {
 
 	/**
 	 * Read a portion of the provided image and return an image with the provided format.
+	 * <p>
+	 * If caching is enabled with {@link #setImageCacheSize(long)}, the result is cached, so requesting the same region
+	 * again is fast. In that case, the returned array may be shared with other callers and must not be modified.
 	 *
 	 * @param server  the image to open
 	 * @param request  the region to read.
@@ -497,41 +1302,731 @@ public class QuPathEntryPoint extends QPEx {
 	 * @throws IOException when an error occurs while reading the image
 	 */
 	public static byte[] getImageBytes(ImageServer<BufferedImage> server, RegionRequest request, String format) throws IOException {
-		if (isImageJFormat(format)) {
-			return toTiffBytes(IJTools.convertToImagePlus(server, request).getImage());
-		} else {
-			return getImageBytes(server.readRegion(request), format);
+		// Only reads that miss the cache are limited
+		return callMetrics.record("getImageBytes", () -> imageBytesCache.get(
+				server.getPath(),
+				request,
+				format == null ? "auto" : format.toLowerCase(),
+				() -> callLimiter.call(() -> readRegionBytes(server, request, format))
+		));
+	}
+
+	/**
+	 * Describe the resolution levels of the provided image. Reading a region at the downsample of a level is
+	 * much cheaper than reading it at another downsample, which requires reading a finer level and resampling it.
+	 *
+	 * @param server  the image whose levels should be described
+	 * @return a JSON array containing one object per level, from the finest to the coarsest, with the "downsample",
+	 * "width", and "height" properties, and the "tileWidth" and "tileHeight" preferred by the image
+	 */
+	public static String getPyramidLevels(ImageServer<BufferedImage> server) {
+		JsonArray levels = new JsonArray();
+		for (var level: server.getMetadata().getLevels()) {
+			JsonObject levelJson = new JsonObject();
+			levelJson.addProperty("downsample", level.getDownsample());
+			levelJson.addProperty("width", level.getWidth());
+			levelJson.addProperty("height", level.getHeight());
+			levelJson.addProperty("tileWidth", server.getMetadata().getPreferredTileWidth());
+			levelJson.addProperty("tileHeight", server.getMetadata().getPreferredTileHeight());
+			levels.add(levelJson);
+		}
+		return GsonTools.getInstance().toJson(levels);
+	}
+
+	/**
+	 * Get the downsample of the resolution level that should be read to obtain an image at the provided downsample:
+	 * the coarsest level that is not coarser than the provided downsample, or the finest level if the provided
+	 * downsample is finer than all levels.
+	 *
+	 * @param server  the image to read
+	 * @param downsample  the downsample of the image to obtain
+	 * @return the downsample of the level to read
+	 */
+	public static double getLevelDownsample(ImageServer<BufferedImage> server, double downsample) {
+		double[] levelDownsamples = server.getPreferredDownsamples();
+
+		double levelDownsample = levelDownsamples[0];
+		for (double candidate: levelDownsamples) {
+			// Small differences are tolerated, as level downsamples are often not exact
+			if (candidate <= downsample * (1 + LEVEL_DOWNSAMPLE_TOLERANCE) && candidate > levelDownsample) {
+				levelDownsample = candidate;
+			}
 		}
+		return levelDownsample;
+	}
+
+	/**
+	 * Read a portion of the provided image at the resolution level chosen by {@link #getLevelDownsample(ImageServer, double)},
+	 * without resampling it. The returned image is therefore at least as large as the one that would be
+	 * returned at the provided downsample.
+	 *
+	 * @param server  the image to open
+	 * @param downsample  the downsample of the image to obtain
+	 * @param x  the x-coordinate of the portion of the image to retrieve
+	 * @param y  the y-coordinate of the portion of the image to retrieve
+	 * @param width  the width of the portion of the image to retrieve
+	 * @param height  the height of the portion of the image to retrieve
+	 * @param z  the z-slice of the image to retrieve
+	 * @param t  the time point of the image to retrieve
+	 * @param format  the format the result should have, or "raw" / "raw interleaved" for raw pixels
+	 * @return an array of bytes describing the requested image with the provided format
+	 * @throws IOException when an error occurs while reading the image
+	 */
+	public static byte[] getImageBytesAtLevel(ImageServer<BufferedImage> server, double downsample, int x, int y, int width, int height, int z, int t, String format) throws IOException {
+		return getImageBytes(
+				server,
+				RegionRequest.createInstance(server.getPath(), getLevelDownsample(server, downsample), x, y, width, height, z, t),
+				format
+		);
+	}
+
+	/**
+	 * Read a portion of the provided image and resize it to the provided size. The region is read at the
+	 * cheapest resolution level that is at least as fine as the requested size
+	 * (see {@link #getLevelDownsample(ImageServer, double)}), and then resized with a smooth interpolation.
+	 * <p>
+	 * If caching is enabled, results are cached like with {@link #getImageBytes(ImageServer, RegionRequest, String)}.
+	 *
+	 * @param server  the image to open
+	 * @param x  the x-coordinate of the portion of the image to retrieve
+	 * @param y  the y-coordinate of the portion of the image to retrieve
+	 * @param width  the width of the portion of the image to retrieve
+	 * @param height  the height of the portion of the image to retrieve
+	 * @param z  the z-slice of the image to retrieve
+	 * @param t  the time point of the image to retrieve
+	 * @param targetWidth  the width of the returned image
+	 * @param targetHeight  the height of the returned image
+	 * @param format  the format the result should have, or "raw" / "raw interleaved" for raw pixels
+	 * @return an array of bytes describing the requested image with the provided format
+	 * @throws IOException when an error occurs while reading the image
+	 * @throws IllegalArgumentException if the target width or height is not positive
+	 */
+	public static byte[] getImageBytesForSize(
+			ImageServer<BufferedImage> server,
+			int x,
+			int y,
+			int width,
+			int height,
+			int z,
+			int t,
+			int targetWidth,
+			int targetHeight,
+			String format
+	) throws IOException {
+		if (targetWidth <= 0 || targetHeight <= 0) {
+			throw new IllegalArgumentException(String.format("The target size %dx%d is not positive", targetWidth, targetHeight));
+		}
+
+		double downsample = Math.max((double) width / targetWidth, (double) height / targetHeight);
+		RegionRequest request = RegionRequest.createInstance(
+				server.getPath(), getLevelDownsample(server, downsample), x, y, width, height, z, t
+		);
+		String cacheFormat = String.format("%s@%dx%d", format == null ? "auto" : format.toLowerCase(), targetWidth, targetHeight);
+
+		return callMetrics.record("getImageBytesForSize", () -> imageBytesCache.get(
+				server.getPath(),
+				request,
+				cacheFormat,
+				() -> callLimiter.call(() -> {
+					BufferedImage image = server.readRegion(request);
+					if (image.getWidth() != targetWidth || image.getHeight() != targetHeight) {
+						image = BufferedImageTools.resize(image, targetWidth, targetHeight, true);
+					}
+					return encodeImage(image, format);
+				})
+		));
+	}
+
+	/**
+	 * Get a thumbnail of the first z-slice and first time point of the provided image, read at the cheapest
+	 * sufficient resolution level (see {@link #getImageBytesForSize(ImageServer, int, int, int, int, int, int, int, int, String)}).
+	 *
+	 * @param server  the image to open
+	 * @param maxSize  the maximum width and height of the thumbnail. The aspect ratio of the image is kept
+	 * @param format  the format the result should have, or "raw" / "raw interleaved" for raw pixels
+	 * @return an array of bytes describing the thumbnail with the provided format
+	 * @throws IOException when an error occurs while reading the image
+	 * @throws IllegalArgumentException if the maximum size is not positive
+	 */
+	public static byte[] getThumbnailBytes(ImageServer<BufferedImage> server, int maxSize, String format) throws IOException {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException(String.format("The maximum size %d is not positive", maxSize));
+		}
+
+		double scale = Math.min(1, (double) maxSize / Math.max(server.getWidth(), server.getHeight()));
+		return getImageBytesForSize(
+				server,
+				0,
+				0,
+				server.getWidth(),
+				server.getHeight(),
+				0,
+				0,
+				Math.max(1, (int) Math.round(server.getWidth() * scale)),
+				Math.max(1, (int) Math.round(server.getHeight() * scale)),
+				format
+		);
+	}
+
+	/**
+	 * Create a job that reads all tiles of the provided image, in order, batch by batch.
+	 *
+	 * @param server  the image to read
+	 * @param downsample  the downsample to use when reading tiles
+	 * @param tileSize  the width and height of tiles, in pixels of the downsampled image
+	 * @param overlap  the overlap between adjacent tiles, in pixels of the downsampled image
+	 * @param z  the z-slice of the tiles
+	 * @param t  the time point of the tiles
+	 * @param format  the format tiles should be encoded with, or "raw" / "raw interleaved" for raw pixels
+	 * @param nThreads  the number of threads reading tiles in parallel in the background
+	 * @return a job returning encoded tiles
+	 * @see #createTileJob(ImageServer, double, int, int, ROI, String, int)
+	 */
+	public static TileJob createTileJob(ImageServer<BufferedImage> server, double downsample, int tileSize, int overlap, int z, int t, String format, int nThreads) {
+		return new TileJob(
+				server,
+				TileJob.computeTiles(server, downsample, tileSize, overlap, null, z, t),
+				format,
+				nThreads,
+				nThreads * TILES_PREFETCHED_PER_THREAD
+		);
+	}
+
+	/**
+	 * Create a job that reads the tiles of the provided image intersecting a ROI, in order, batch by batch.
+	 * <p>
+	 * Tiles are read in parallel in the background, so that the next tiles are ready when
+	 * {@link TileJob#nextBatch(int)} is called. The location of each tile can be retrieved with
+	 * {@link TileJob#getTileRegions()}.
+	 *
+	 * @param server  the image to read
+	 * @param downsample  the downsample to use when reading tiles
+	 * @param tileSize  the width and height of tiles, in pixels of the downsampled image
+	 * @param overlap  the overlap between adjacent tiles, in pixels of the downsampled image
+	 * @param roi  only tiles intersecting this ROI are read. The z-slice and time point of tiles are the ones of this ROI.
+	 *             Can be null to read the entire image (first z-slice and time point)
+	 * @param format  the format tiles should be encoded with, or "raw" / "raw interleaved" for raw pixels
+	 * @param nThreads  the number of threads reading tiles in parallel in the background
+	 * @return a job returning encoded tiles
+	 */
+	public static TileJob createTileJob(ImageServer<BufferedImage> server, double downsample, int tileSize, int overlap, ROI roi, String format, int nThreads) {
+		return new TileJob(
+				server,
+				TileJob.computeTiles(server, downsample, tileSize, overlap, roi, 0, 0),
+				format,
+				nThreads,
+				nThreads * TILES_PREFETCHED_PER_THREAD
+		);
+	}
+
+	/**
+	 * Set the maximum number of bytes taken by image regions cached by {@link #getImageBytes(ImageServer, RegionRequest, String)}
+	 * and {@link #getRawBytes(ImageServer, RegionRequest, boolean)}. If the cache is currently larger, the least
+	 * recently used regions are evicted.
+	 * <p>
+	 * Caching is disabled by default. Regions are cached by path of the image, so the cache should only be enabled
+	 * if the pixels of images don't change without their path changing (or {@link #clearImageCache()} should be
+	 * called when they do). Cached arrays are shared by all callers requesting the same region, so they must not be
+	 * modified.
+	 *
+	 * @param maxBytes  the maximum number of bytes of the cache, or 0 to disable caching
+	 */
+	public static void setImageCacheSize(long maxBytes) {
+		imageBytesCache.setMaxSize(maxBytes);
+	}
+
+	/**
+	 * Remove all image regions from the cache used by {@link #getImageBytes(ImageServer, RegionRequest, String)}
+	 * and {@link #getRawBytes(ImageServer, RegionRequest, boolean)}.
+	 */
+	public static void clearImageCache() {
+		imageBytesCache.clear();
+	}
+
+	/**
+	 * Get statistics about the cache used by {@link #getImageBytes(ImageServer, RegionRequest, String)}
+	 * and {@link #getRawBytes(ImageServer, RegionRequest, boolean)}.
+	 *
+	 * @return a map with the following keys: "hits", "misses", "evictions", "entries", "size" (in bytes),
+	 * and "maxSize" (in bytes)
+	 */
+	public static Map<String, Long> getImageCacheStatistics() {
+		return imageBytesCache.getStatistics();
 	}
 
 	/**
 	 * Same as {@link #getImageBytes(ImageServer, double, String)}, but encoded with the {@link Base64} scheme.
+	 *
+	 * @deprecated Base64 encoding makes the result a third larger and needs the whole result in memory.
+	 * Use {@link #getImageBytes(ImageServer, RegionRequest, String)} or {@link #getImageChunked(ImageServer, RegionRequest, String)} instead
 	 */
+	@Deprecated
 	public static String getImageBase64(ImageServer<BufferedImage> server, double downsample, String format) throws IOException {
 		return base64Encode(getImageBytes(server, downsample, format));
 	}
 
 	/**
 	 * Same as {@link #getImageBytes(ImageServer, double, int, int, int, int, String)}, but encoded with the {@link Base64} scheme.
+	 *
+	 * @deprecated Base64 encoding makes the result a third larger and needs the whole result in memory.
+	 * Use {@link #getImageBytes(ImageServer, RegionRequest, String)} or {@link #getImageChunked(ImageServer, RegionRequest, String)} instead
 	 */
+	@Deprecated
 	public static String getImageBase64(ImageServer<BufferedImage> server, double downsample, int x, int y, int width, int height, String format) throws IOException {
 		return base64Encode(getImageBytes(server, downsample, x, y, width, height, format));
 	}
 
 	/**
 	 * Same as {@link #getImageBytes(ImageServer, double, int, int, int, int, int, int, String)}, but encoded with the {@link Base64} scheme.
+	 *
+	 * @deprecated Base64 encoding makes the result a third larger and needs the whole result in memory.
+	 * Use {@link #getImageBytes(ImageServer, RegionRequest, String)} or {@link #getImageChunked(ImageServer, RegionRequest, String)} instead
 	 */
+	@Deprecated
 	public static String getImageBase64(ImageServer<BufferedImage> server, double downsample, int x, int y, int width, int height, int z, int t, String format) throws IOException {
 		return base64Encode(getImageBytes(server, downsample, x, y, width, height, z, t, format));
 	}
 
 	/**
 	 * Same as {@link #getImageBytes(ImageServer, RegionRequest, String)}, but encoded with the {@link Base64} scheme.
+	 *
+	 * @deprecated Base64 encoding makes the result a third larger and needs the whole result in memory.
+	 * Use {@link #getImageBytes(ImageServer, RegionRequest, String)} or {@link #getImageChunked(ImageServer, RegionRequest, String)} instead
 	 */
+	@Deprecated
 	public static String getImageBase64(ImageServer<BufferedImage> server, RegionRequest request, String format) throws IOException {
 		return base64Encode(getImageBytes(server, request, format));
 	}
 
+	/**
+	 * Same as {@link #getImageBytes(ImageServer, double, String)}, but returned as a {@link ChunkedTransfer} to read in chunks.
+	 */
+	public static ChunkedTransfer getImageChunked(ImageServer<BufferedImage> server, double downsample, String format) throws IOException {
+		return ChunkedTransfer.ofBytes(getImageBytes(server, downsample, format));
+	}
+
+	/**
+	 * Same as {@link #getImageBytes(ImageServer, double, int, int, int, int, int, int, String)}, but returned as a
+	 * {@link ChunkedTransfer} to read in chunks.
+	 */
+	public static ChunkedTransfer getImageChunked(ImageServer<BufferedImage> server, double downsample, int x, int y, int width, int height, int z, int t, String format) throws IOException {
+		return ChunkedTransfer.ofBytes(getImageBytes(server, downsample, x, y, width, height, z, t, format));
+	}
+
+	/**
+	 * Same as {@link #getImageBytes(ImageServer, RegionRequest, String)}, but returned as a {@link ChunkedTransfer}
+	 * to read in chunks. This avoids the limits of Py4J on the size of a single answer.
+	 */
+	public static ChunkedTransfer getImageChunked(ImageServer<BufferedImage> server, RegionRequest request, String format) throws IOException {
+		return ChunkedTransfer.ofBytes(getImageBytes(server, request, format));
+	}
+
+	/**
+	 * Get the port of the bulk data server started next to the gateway of this entry point, if any.
+	 * The bulk data server sends payloads identified by tickets (see {@link #createBulkDataTicket(ChunkedTransfer)})
+	 * over a plain socket, without going through the Py4J protocol.
+	 *
+	 * @return the port of the bulk data server, or -1 if the gateway of this entry point doesn't have one
+	 */
+	public int getBulkDataPort() {
+		return bulkDataPort;
+	}
+
+	/**
+	 * Register a transfer so that it can be fetched once through the bulk data server of the gateway of this entry
+	 * point (see {@link #getBulkDataPort()}). The transfer is closed once fetched, if it is not fetched within
+	 * {@link BulkDataTickets#TICKET_LIFETIME_MILLIS} milliseconds, or if the gateway stops.
+	 * <p>
+	 * From Python, the payload can be fetched with:
+	 * <pre>{@code
+	 * with socket.create_connection(("127.0.0.1", port)) as s:
+	 *     s.sendall(f"{token}\n{ticket}\n".encode())
+	 *     size = struct.unpack(">q", s.recv(8, socket.MSG_WAITALL))[0]  # negative if the token or ticket is invalid
+	 *     data = bytearray(size)
+	 *     view = memoryview(data)
+	 *     while view:
+	 *         n = s.recv_into(view)
+	 *         view = view[n:]
+	 * }</pre>
+	 *
+	 * @param transfer  the transfer to register
+	 * @return a ticket identifying the transfer
+	 * @throws IllegalStateException if the gateway of this entry point doesn't have a bulk data server. The transfer
+	 * is closed in this case
+	 */
+	public String createBulkDataTicket(ChunkedTransfer transfer) {
+		BulkDataTickets tickets = bulkDataTickets;
+		if (tickets == null) {
+			transfer.close();
+			throw new IllegalStateException("The gateway of this entry point doesn't have a bulk data server");
+		}
+		return tickets.register(transfer);
+	}
+
+	/**
+	 * Same as {@link #getTiffStackChunked(ImageServer, RegionRequest)}, but registered to be fetched through
+	 * a bulk data server (see {@link #createBulkDataTicket(ChunkedTransfer)}). The TIFF file is sent with
+	 * zero-copy file transfers.
+	 */
+	public String getTiffStackTicket(ImageServer<BufferedImage> server, RegionRequest request) throws IOException {
+		return createBulkDataTicket(getTiffStackChunked(server, request));
+	}
+
+	/**
+	 * Same as {@link #getImageChunked(ImageServer, RegionRequest, String)}, but registered to be fetched through
+	 * a bulk data server (see {@link #createBulkDataTicket(ChunkedTransfer)}).
+	 */
+	public String getImageTicket(ImageServer<BufferedImage> server, RegionRequest request, String format) throws IOException {
+		return createBulkDataTicket(getImageChunked(server, request, format));
+	}
+
+	/**
+	 * Same as {@link #toFeatureCollectionChunked(Collection)}, but registered to be fetched through
+	 * a bulk data server (see {@link #createBulkDataTicket(ChunkedTransfer)}).
+	 */
+	public String toFeatureCollectionTicket(Collection<? extends PathObject> pathObjects) throws IOException {
+		return createBulkDataTicket(toFeatureCollectionChunked(pathObjects));
+	}
+
+	/**
+	 * Set the bulk data server of the gateway of this entry point.
+	 *
+	 * @param bulkDataPort  the port of the bulk data server, or -1 if there is none
+	 * @param bulkDataTickets  the registry of transfers the bulk data server sends, or null if there is no server
+	 */
+	void setBulkDataServer(int bulkDataPort, BulkDataTickets bulkDataTickets) {
+		this.bulkDataPort = bulkDataPort;
+		this.bulkDataTickets = bulkDataTickets;
+	}
+
+	/**
+	 * Read the first z-slice and first time point of the provided image at the provided downsample
+	 * and return its raw pixel values, without any encoding.
+	 *
+	 * @param server  the image to open
+	 * @param downsample  the downsample to use when reading the image
+	 * @param interleaved  whether pixels should be interleaved (height, width, channels) or planar (channels, height, width)
+	 * @return an array of bytes containing a header and the pixel values, as described in {@link #getRawBytes(BufferedImage, boolean)}
+	 * @throws IOException when an error occurs while reading the image
+	 */
+	public static byte[] getRawBytes(ImageServer<BufferedImage> server, double downsample, boolean interleaved) throws IOException {
+		return getRawBytes(server, downsample, 0, 0, server.getWidth(), server.getHeight(), interleaved);
+	}
+
+	/**
+	 * Read the first z-slice and first time point of a portion of the provided image at the provided downsample
+	 * and return its raw pixel values, without any encoding.
+	 *
+	 * @param server  the image to open
+	 * @param downsample  the downsample to use when reading the image
+	 * @param x  the x-coordinate of the portion of the image to retrieve
+	 * @param y  the y-coordinate of the portion of the image to retrieve
+	 * @param width  the width of the portion of the image to retrieve
+	 * @param height  the height of the portion of the image to retrieve
+	 * @param interleaved  whether pixels should be interleaved (height, width, channels) or planar (channels, height, width)
+	 * @return an array of bytes containing a header and the pixel values, as described in {@link #getRawBytes(BufferedImage, boolean)}
+	 * @throws IOException when an error occurs while reading the image
+	 */
+	public static byte[] getRawBytes(ImageServer<BufferedImage> server, double downsample, int x, int y, int width, int height, boolean interleaved) throws IOException {
+		return getRawBytes(server, downsample, x, y, width, height, 0, 0, interleaved);
+	}
+
+	/**
+	 * Read a portion of the provided image at the provided downsample and return its raw pixel values,
+	 * without any encoding.
+	 *
+	 * @param server  the image to open
+	 * @param downsample  the downsample to use when reading the image
+	 * @param x  the x-coordinate of the portion of the image to retrieve
+	 * @param y  the y-coordinate of the portion of the image to retrieve
+	 * @param width  the width of the portion of the image to retrieve
+	 * @param height  the height of the portion of the image to retrieve
+	 * @param z  the z-slice of the image to retrieve
+	 * @param t  the time point of the image to retrieve
+	 * @param interleaved  whether pixels should be interleaved (height, width, channels) or planar (channels, height, width)
+	 * @return an array of bytes containing a header and the pixel values, as described in {@link #getRawBytes(BufferedImage, boolean)}
+	 * @throws IOException when an error occurs while reading the image
+	 */
+	public static byte[] getRawBytes(ImageServer<BufferedImage> server, double downsample, int x, int y, int width, int height, int z, int t, boolean interleaved) throws IOException {
+		return getRawBytes(
+				server,
+				RegionRequest.createInstance(server.getPath(), downsample, x, y, width, height, z, t),
+				interleaved
+		);
+	}
+
+	/**
+	 * Read a portion of the provided image and return its raw pixel values, without any encoding.
+	 * <p>
+	 * If caching is enabled with {@link #setImageCacheSize(long)}, the result is cached, so requesting the same region
+	 * again is fast. In that case, the returned array may be shared with other callers and must not be modified.
+	 *
+	 * @param server  the image to open
+	 * @param request  the region to read
+	 * @param interleaved  whether pixels should be interleaved (height, width, channels) or planar (channels, height, width)
+	 * @return an array of bytes containing a header and the pixel values, as described in {@link #getRawBytes(BufferedImage, boolean)}
+	 * @throws IOException when an error occurs while reading the image
+	 */
+	public static byte[] getRawBytes(ImageServer<BufferedImage> server, RegionRequest request, boolean interleaved) throws IOException {
+		String format = interleaved ? RAW_INTERLEAVED_FORMAT : RAW_FORMAT;
+		return callMetrics.record("getRawBytes", () -> imageBytesCache.get(
+				server.getPath(),
+				request,
+				format,
+				() -> callLimiter.call(() -> readRegionBytes(server, request, format))
+		));
+	}
+
+	/**
+	 * Convert a {@link BufferedImage} to an array of bytes containing its raw pixel values. This avoids the cost
+	 * of encoding the image (for example as PNG or TIFF) and of decoding it on the Python side.
+	 * <p>
+	 * The returned array starts with a header of 32 bytes composed of eight little-endian 32-bit integers:
+	 * a magic number ("QPRW" in ASCII), the format version, the width, the height, the number of channels,
+	 * the data type (0=uint8, 1=int8, 2=uint16, 3=int16, 4=uint32, 5=int32, 6=float32, 7=float64),
+	 * 1 if the pixels are interleaved or 0 if they are planar, and a reserved value.
+	 * The pixel values follow in little-endian order, so they can be read with
+	 * {@code numpy.frombuffer(data, dtype, offset=32)} and then reshaped.
+	 *
+	 * @param image  the image to convert
+	 * @param interleaved  whether pixels should be interleaved (height, width, channels) or planar (channels, height, width)
+	 * @return an array of bytes containing a header and the pixel values of the provided image
+	 * @throws IllegalArgumentException if the image is too large to fit in an array, or if its data type is not supported
+	 */
+	public static byte[] getRawBytes(BufferedImage image, boolean interleaved) {
+		return RawPixels.toBytes(image, interleaved);
+	}
+
+	/**
+	 * Read a portion of the provided image at the provided downsample and write its raw pixel values to a
+	 * memory-mapped file, so that Python can access them without copying them through the Py4J socket.
+	 *
+	 * @param server  the image to open
+	 * @param downsample  the downsample to use when reading the image
+	 * @param x  the x-coordinate of the portion of the image to retrieve
+	 * @param y  the y-coordinate of the portion of the image to retrieve
+	 * @param width  the width of the portion of the image to retrieve
+	 * @param height  the height of the portion of the image to retrieve
+	 * @param z  the z-slice of the image to retrieve
+	 * @param t  the time point of the image to retrieve
+	 * @param interleaved  whether pixels should be interleaved (height, width, channels) or planar (channels, height, width)
+	 * @return a description of the memory-mapped file containing the pixels. It should be released
+	 * with {@link MappedImage#release()} once the pixels are not needed anymore
+	 * @throws IOException when an error occurs while reading the image or writing the file
+	 */
+	public static MappedImage getMappedImage(ImageServer<BufferedImage> server, double downsample, int x, int y, int width, int height, int z, int t, boolean interleaved) throws IOException {
+		return getMappedImage(
+				server,
+				RegionRequest.createInstance(server.getPath(), downsample, x, y, width, height, z, t),
+				interleaved
+		);
+	}
+
+	/**
+	 * Read a portion of the provided image and write its raw pixel values to a memory-mapped file, so that
+	 * Python can access them without copying them through the Py4J socket.
+	 * <p>
+	 * From Python, the pixels can be read with
+	 * {@code numpy.memmap(image.getPath(), dtype=image.getDtype(), mode="r", offset=image.getOffset(), shape=tuple(image.getShape()))}.
+	 *
+	 * @param server  the image to open
+	 * @param request  the region to read
+	 * @param interleaved  whether pixels should be interleaved (height, width, channels) or planar (channels, height, width)
+	 * @return a description of the memory-mapped file containing the pixels. It should be released
+	 * with {@link MappedImage#release()} once the pixels are not needed anymore
+	 * @throws IOException when an error occurs while reading the image or writing the file
+	 * @see #setMappedImageDirectory(String)
+	 */
+	public static MappedImage getMappedImage(ImageServer<BufferedImage> server, RegionRequest request, boolean interleaved) throws IOException {
+		return callHeavy("getMappedImage", () -> mappedImageStore.write(server.readRegion(request), interleaved));
+	}
+
+	/**
+	 * Set the directory where memory-mapped files created by {@link #getMappedImage(ImageServer, RegionRequest, boolean)}
+	 * are written. Using a RAM-backed file system (for example /dev/shm on Linux) avoids any disk access.
+	 * All existing memory-mapped files are released.
+	 *
+	 * @param directory  the path of the directory to use, or null to use a new directory in the default temporary directory
+	 */
+	public static void setMappedImageDirectory(String directory) {
+		mappedImageStore.setDirectory(directory == null || directory.isBlank() ? null : Path.of(directory));
+	}
+
+	/**
+	 * Release all memory-mapped files created by {@link #getMappedImage(ImageServer, RegionRequest, boolean)}
+	 * and delete them.
+	 */
+	public static void releaseMappedImages() {
+		mappedImageStore.clear();
+	}
+
+	/**
+	 * Start {@link #getTiffStack(ImageServer, RegionRequest)} in the background.
+	 *
+	 * @param server  the image to open
+	 * @param request  the region to read
+	 * @return a job whose result is a TIFF encoded array of bytes corresponding to the hyperstack
+	 */
+	public static AsyncJob<byte[]> submitGetTiffStack(ImageServer<BufferedImage> server, RegionRequest request) {
+		return asyncJobManager.submit("getTiffStack " + request, () -> getTiffStack(server, request));
+	}
+
+	/**
+	 * Start {@link #getImageBytes(ImageServer, RegionRequest, String)} in the background.
+	 *
+	 * @param server  the image to open
+	 * @param request  the region to read
+	 * @param format  the format the result should have
+	 * @return a job whose result is an array of bytes describing the requested image with the provided format
+	 */
+	public static AsyncJob<byte[]> submitGetImageBytes(ImageServer<BufferedImage> server, RegionRequest request, String format) {
+		return asyncJobManager.submit("getImageBytes " + request, () -> getImageBytes(server, request, format));
+	}
+
+	/**
+	 * Start {@link #getRawBytes(ImageServer, RegionRequest, boolean)} in the background.
+	 *
+	 * @param server  the image to open
+	 * @param request  the region to read
+	 * @param interleaved  whether pixels should be interleaved (height, width, channels) or planar (channels, height, width)
+	 * @return a job whose result is an array of bytes containing a header and the pixel values
+	 */
+	public static AsyncJob<byte[]> submitGetRawBytes(ImageServer<BufferedImage> server, RegionRequest request, boolean interleaved) {
+		return asyncJobManager.submit("getRawBytes " + request, () -> getRawBytes(server, request, interleaved));
+	}
+
+	/**
+	 * Start {@link #toFeatureCollection(Collection)} in the background.
+	 *
+	 * @param pathObjects  the PathObjects to convert
+	 * @return a job whose result is a GeoJSON FeatureCollection representing the provided PathObjects
+	 */
+	public static AsyncJob<String> submitToFeatureCollection(Collection<? extends PathObject> pathObjects) {
+		List<PathObject> objects = new ArrayList<>(pathObjects);
+		return asyncJobManager.submit(
+				String.format("toFeatureCollection (%d objects)", objects.size()),
+				() -> toFeatureCollection(objects)
+		);
+	}
+
+	/**
+	 * Get a job started by one of the {@code submit} methods of this class. This is useful
+	 * if only the ID of the job was kept.
+	 *
+	 * @param id  the ID of the job
+	 * @return the job with the provided ID, or null if it doesn't exist or was released
+	 */
+	public static AsyncJob<?> getAsyncJob(String id) {
+		return asyncJobManager.get(id);
+	}
+
+	/**
+	 * Stop tracking a job started by one of the {@code submit} methods of this class, cancelling it if it is still running.
+	 * Jobs are forgotten once their result is retrieved, and finished jobs whose result is never retrieved are
+	 * automatically forgotten after some time, but releasing them frees their result earlier.
+	 *
+	 * @param id  the ID of the job
+	 */
+	public static void releaseAsyncJob(String id) {
+		asyncJobManager.release(id);
+	}
+
+	/**
+	 * Set the number of threads running jobs started by the {@code submit} methods of this class.
+	 * By default, this is the number of available processors.
+	 *
+	 * @param nThreads  the number of threads running jobs in parallel
+	 * @throws IllegalArgumentException if the number of threads is not positive
+	 */
+	public static void setAsyncJobThreads(int nThreads) {
+		asyncJobManager.setNumThreads(nThreads);
+	}
+
+	/**
+	 * Register a listener (usually implemented in Python) of QuPath events. Events are coalesced and delivered
+	 * in batches on a thread dedicated to the listener, so that neither QuPath nor other listeners wait for it.
+	 * The following types of events are published:
+	 * <ul>
+	 *     <li>"imageOpened", with the "imageName" of the image opened in QuPath (or read with
+	 *     {@link #readImageData(ProjectImageEntry)} when QuPath runs headless).</li>
+	 *     <li>"imageClosed", with the "imageName" of the image that was open before, when it is closed or
+	 *     replaced by another image (in which case it is followed by an "imageOpened" event).</li>
+	 *     <li>"hierarchyChanged", when the objects of this image change, with a "structural" boolean indicating
+	 *     whether objects were added or removed.</li>
+	 *     <li>"selectionChanged", with the "selectedId" of the primary selected object and the "numSelected"
+	 *     objects of this image.</li>
+	 *     <li>"jobDone", with the "id", "name", and "state" of a finished job started by a {@code submit} method
+	 *     of this class, or the "name", "state", "numImages", and "numFailures" of a finished
+	 *     {@link #exportProject(Project, String, List, String, int, long) project export}.</li>
+	 * </ul>
+	 * The Python client must have started a callback server (see {@link QuPathEventListener}).
+	 *
+	 * @param listener  the listener to register
+	 */
+	public static void addEventListener(QuPathEventListener listener) {
+		watchEventSources();
+		eventDispatcher.addListener(listener);
+	}
+
+	/**
+	 * Unregister a listener added with {@link #addEventListener(QuPathEventListener)}.
+	 * This has no effect if the listener was not registered.
+	 *
+	 * @param listener  the listener to unregister
+	 */
+	public static void removeEventListener(QuPathEventListener listener) {
+		eventDispatcher.removeListener(listener);
+	}
+
+	/**
+	 * Limit the number of heavy calls (pixel reads, exports, and measurement tables) running at the same time,
+	 * across all gateways. Calls that cannot run immediately wait in a queue, and are rejected with a
+	 * {@link java.util.concurrent.RejectedExecutionException} if the queue is full or if they waited too long.
+	 * Calls already running or waiting are not affected.
+	 *
+	 * @param maxConcurrentCalls  the maximum number of heavy calls running at the same time, or 0 to not limit calls
+	 * @param maxQueuedCalls  the maximum number of heavy calls waiting to run, or 0 to not limit the queue
+	 * @param queueTimeoutMillis  the maximum number of milliseconds a heavy call can wait to run, or 0 to wait indefinitely
+	 */
+	public static void setHeavyCallLimits(int maxConcurrentCalls, int maxQueuedCalls, long queueTimeoutMillis) {
+		callLimiter.setLimits(maxConcurrentCalls, maxQueuedCalls, queueTimeoutMillis);
+	}
+
+	/**
+	 * Get statistics on the calls made to the main methods of this entry point (pixel reads, object conversions,
+	 * exports, and measurements), grouped by method and by connection. For each group, this includes the number
+	 * of calls, the number of errors, the total size of the returned payloads, and the mean, 50th, 95th, and 99th
+	 * percentiles, and maximum latencies in milliseconds.
+	 * <p>
+	 * The result can be parsed with Python's {@code json.loads}.
+	 *
+	 * @return a JSON representation of the call statistics, as described in {@link CallMetrics#toJson()}
+	 */
+	public static String getCallMetrics() {
+		return callMetrics.toJson();
+	}
+
+	/**
+	 * Forget all statistics returned by {@link #getCallMetrics()}.
+	 */
+	public static void resetCallMetrics() {
+		callMetrics.reset();
+	}
+
+	/**
+	 * @return the object recording the statistics returned by {@link #getCallMetrics()}
+	 */
+	static CallMetrics getCallMetricsRecorder() {
+		return callMetrics;
+	}
+
+	/**
+	 * @return the limiter shared by all heavy calls
+	 */
+	static CallLimiter getCallLimiter() {
+		return callLimiter;
+	}
+
 	/**
 	 * Convert a {@link BufferedImage} to an array of bytes. If the image is RGB, the format of the returned image is PNG.
 	 * Otherwise, it's "imagej tiff".
@@ -567,10 +2062,134 @@ public class QuPathEntryPoint extends QPEx {
 		}
 	}
 
-	private static String base64Encode(byte[] bytes) {
+	private static <T, E extends Exception> T callHeavy(String method, CallLimiter.Call<T, E> call) throws E {
+		// Metrics include the time spent waiting for the limiter
+		return callMetrics.record(method, () -> callLimiter.call(call));
+	}
+
+	/**
+	 * Read a portion of the provided image without using the cache, and encode it with the provided format.
+	 * The "raw" and "raw interleaved" formats correspond to {@link #getRawBytes(BufferedImage, boolean)}.
+	 */
+	static byte[] readRegionBytes(ImageServer<BufferedImage> server, RegionRequest request, String format) throws IOException {
+		if (RAW_FORMAT.equalsIgnoreCase(format)) {
+			return getRawBytes(server.readRegion(request), false);
+		} else if (RAW_INTERLEAVED_FORMAT.equalsIgnoreCase(format)) {
+			return getRawBytes(server.readRegion(request), true);
+		} else if (format != null && isImageJFormat(format)) {
+			return toTiffBytes(IJTools.convertToImagePlus(server, request).getImage());
+		} else {
+			return getImageBytes(server.readRegion(request), format);
+		}
+	}
+
+	private static double getCentroidDistance(PathObject pathObject, double x, double y) {
+		return Math.hypot(pathObject.getROI().getCentroidX() - x, pathObject.getROI().getCentroidY() - y);
+	}
+
+	private static synchronized void watchEventSources() {
+		if (eventSourcesWatched) {
+			return;
+		}
+		eventSourcesWatched = true;
+
+		asyncJobManager.setJobDoneListener(job -> {
+			JsonObject properties = new JsonObject();
+			properties.addProperty("id", job.getId());
+			properties.addProperty("name", job.getName());
+			properties.addProperty("state", job.getState().name());
+			eventDispatcher.publish("jobDone", job.getId(), properties);
+		});
+
+		QuPathGUI qupath = getQuPath();
+		if (qupath != null) {
+			FXUtils.runOnApplicationThread(() -> {
+				qupath.imageDataProperty().addListener((p, o, n) -> eventDispatcher.setImageData(n));
+				eventDispatcher.setImageData(qupath.getImageData());
+			});
+		}
+	}
+
+	private static void checkGuiAvailable(Object guiElement) {
+		if (guiElement == null) {
+			throw new IllegalStateException("The QuPath user interface is not available (is QuPath running headless?)");
+		}
+	}
+
+	private static Project<BufferedImage> getProject(ProjectImageEntry<BufferedImage> entry) {
+		Project<BufferedImage> project = getProject();
+		return project != null && project.getImageList().contains(entry) ? project : null;
+	}
+
+	private static byte[] encodeImage(BufferedImage image, String format) throws IOException {
+		if (RAW_FORMAT.equalsIgnoreCase(format)) {
+			return getRawBytes(image, false);
+		} else if (RAW_INTERLEAVED_FORMAT.equalsIgnoreCase(format)) {
+			return getRawBytes(image, true);
+		} else {
+			return getImageBytes(image, format);
+		}
+	}
+
+	private static void awaitRender(Scene scene) {
+		try {
+			RenderBarrier.awaitNextPulse(scene, SNAPSHOT_RENDER_TIMEOUT_MILLIS);
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Encode the provided bytes with the {@link Base64} scheme.
+	 */
+	static String base64Encode(byte[] bytes) {
 		return Base64.getEncoder().encodeToString(bytes);
 	}
 
+	private static PathObject createPathObject(String objectType, ROI roi, PathClass pathClass) {
+		return switch (objectType == null ? "" : objectType.toLowerCase()) {
+			case "annotation" -> PathObjects.createAnnotationObject(roi, pathClass);
+			case "detection" -> PathObjects.createDetectionObject(roi, pathClass);
+			case "tile" -> PathObjects.createTileObject(roi, pathClass, null);
+			default -> throw new IllegalArgumentException(String.format("Unsupported object type: %s", objectType));
+		};
+	}
+
+	/**
+	 * Get the values of several measurements of the provided PathObjects, as one array per measurement
+	 * with one value per PathObject (NaN if missing).
+	 */
+	static double[][] getMeasurementArrays(Collection<? extends PathObject> pathObjects, List<String> names) {
+		List<? extends PathObject> objects = new ArrayList<>(pathObjects);
+		double[][] columns = new double[names.size()][objects.size()];
+
+		IntStream indices = IntStream.range(0, objects.size());
+		if (objects.size() >= MIN_OBJECTS_FOR_PARALLEL_MEASUREMENTS) {
+			indices = indices.parallel();
+		}
+		indices.forEach(i -> {
+			MeasurementList measurementList = objects.get(i).getMeasurementList();
+			for (int j = 0; j < names.size(); j++) {
+				columns[j][i] = measurementList.get(names.get(j));
+			}
+		});
+
+		return columns;
+	}
+
+	/**
+	 * Wait for the provided import task to finish, cancelling it if the calling thread is interrupted.
+	 */
+	private static List<PathObject> getImportedObjects(GeoJsonImportTask task) throws InterruptedException, ExecutionException {
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			task.cancel();
+			Thread.currentThread().interrupt();
+			throw e;
+		}
+	}
+
 	private static <T> Stream<T> toStream(Collection<T> collection, int minSizeForParallelism) {
 		if (collection.size() >= minSizeForParallelism) {
 			return collection.parallelStream();
@@ -0,0 +1,30 @@
+package qupath.ext.py4j.core;
+
+/**
+ * A listener of QuPath events, usually implemented in Python and registered with
+ * {@link QuPathEntryPoint#addEventListener(QuPathEventListener)}.
+ * <p>
+ * From Python, this interface can be implemented with:
+ * <pre>{@code
+ * class Listener:
+ *     def onEvents(self, events):
+ *         print(json.loads(events))
+ *
+ *     class Java:
+ *         implements = ["qupath.ext.py4j.core.QuPathEventListener"]
+ * }</pre>
+ * The Python client must have started a callback server for QuPath to be able to call the listener
+ * (see {@link GatewayOptions.Builder#callbackPort(int)}).
+ */
+public interface QuPathEventListener {
+
+    /**
+     * Called with a batch of events. This is always called from a thread dedicated to this listener, so a slow
+     * listener delays the delivery of its next batches but never blocks QuPath or other listeners.
+     *
+     * @param events  a JSON object with the list of "events" (each with a "type", a "count" of coalesced
+     *                occurrences, and properties depending on the type) and the number of events "dropped"
+     *                because too many events were waiting to be delivered
+     */
+    void onEvents(String events);
+}
@@ -0,0 +1,254 @@
+package qupath.ext.py4j.core;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Utility methods to write the pixel values of a {@link BufferedImage} as raw little-endian
+ * bytes, without any compression or encoding.
+ * <p>
+ * The output starts with a header of {@link #HEADER_SIZE} bytes followed by the pixel values.
+ * All values of the header are little-endian 32-bit integers:
+ * <ol>
+ *     <li>the magic number {@link #MAGIC} ("QPRW" in ASCII)</li>
+ *     <li>the version of the format (currently 1)</li>
+ *     <li>the width of the image</li>
+ *     <li>the height of the image</li>
+ *     <li>the number of channels of the image</li>
+ *     <li>the {@link DataType#getCode() code} of the data type of the pixels</li>
+ *     <li>1 if the pixels are interleaved (height, width, channels), or 0 if they are planar (channels, height, width)</li>
+ *     <li>reserved, currently 0</li>
+ * </ol>
+ * This means that the pixels can be read with {@code numpy.frombuffer(data, dtype, offset=32)}.
+ */
+class RawPixels {
+
+    /**
+     * The size in bytes of the header preceding the pixel values.
+     */
+    public static final int HEADER_SIZE = 32;
+    /**
+     * The first four bytes of the header.
+     */
+    public static final int MAGIC = 0x57525051;
+    private static final int VERSION = 1;
+
+    /**
+     * The data types pixels can be written with.
+     */
+    public enum DataType {
+        /**
+         * Unsigned 8-bit integers
+         */
+        UINT8(0, "|u1", 1),
+        /**
+         * Signed 8-bit integers
+         */
+        INT8(1, "|i1", 1),
+        /**
+         * Unsigned 16-bit integers
+         */
+        UINT16(2, "<u2", 2),
+        /**
+         * Signed 16-bit integers
+         */
+        INT16(3, "<i2", 2),
+        /**
+         * Unsigned 32-bit integers
+         */
+        UINT32(4, "<u4", 4),
+        /**
+         * Signed 32-bit integers
+         */
+        INT32(5, "<i4", 4),
+        /**
+         * 32-bit floating point numbers
+         */
+        FLOAT32(6, "<f4", 4),
+        /**
+         * 64-bit floating point numbers
+         */
+        FLOAT64(7, "<f8", 8);
+
+        private final int code;
+        private final String numpyType;
+        private final int bytesPerSample;
+
+        DataType(int code, String numpyType, int bytesPerSample) {
+            this.code = code;
+            this.numpyType = numpyType;
+            this.bytesPerSample = bytesPerSample;
+        }
+
+        /**
+         * @return the code identifying this data type in the header
+         */
+        public int getCode() {
+            return code;
+        }
+
+        /**
+         * @return the NumPy type string corresponding to this data type (for example "&lt;u2")
+         */
+        public String getNumpyType() {
+            return numpyType;
+        }
+
+        /**
+         * @return the number of bytes used by one sample of this type
+         */
+        public int getBytesPerSample() {
+            return bytesPerSample;
+        }
+    }
+
+    private RawPixels() {
+        throw new AssertionError("This class is not instantiable.");
+    }
+
+    /**
+     * Get the data type that will be used to write the pixels of the provided image.
+     *
+     * @param image  the image whose pixels should be written
+     * @return the data type of the pixels of the provided image
+     * @throws IllegalArgumentException if the data type of the image is not supported
+     */
+    public static DataType getDataType(BufferedImage image) {
+        Raster raster = image.getRaster();
+        return switch (raster.getDataBuffer().getDataType()) {
+            case DataBuffer.TYPE_BYTE -> DataType.UINT8;
+            case DataBuffer.TYPE_USHORT -> DataType.UINT16;
+            case DataBuffer.TYPE_SHORT -> DataType.INT16;
+            // Packed RGB images use ints to store 8-bit samples
+            case DataBuffer.TYPE_INT -> raster.getSampleModel().getSampleSize(0) <= 8 ? DataType.UINT8 : DataType.INT32;
+            case DataBuffer.TYPE_FLOAT -> DataType.FLOAT32;
+            case DataBuffer.TYPE_DOUBLE -> DataType.FLOAT64;
+            default -> throw new IllegalArgumentException(
+                    "Unsupported data buffer type: " + raster.getDataBuffer().getDataType()
+            );
+        };
+    }
+
+    /**
+     * Get the number of bytes needed to write the provided image, including the header.
+     *
+     * @param image  the image to write
+     * @return the number of bytes needed to write the provided image
+     */
+    public static long getByteLength(BufferedImage image) {
+        Raster raster = image.getRaster();
+        return HEADER_SIZE + (long) raster.getWidth() * raster.getHeight() * raster.getNumBands() *
+                getDataType(image).getBytesPerSample();
+    }
+
+    /**
+     * Write the header and the pixel values of the provided image to an array of bytes.
+     *
+     * @param image  the image to write
+     * @param interleaved  whether to write pixels interleaved (height, width, channels) or planar (channels, height, width)
+     * @return an array of bytes containing the header and the pixels values
+     * @throws IllegalArgumentException if the image is too large to fit in an array, or if its data type is not supported
+     */
+    public static byte[] toBytes(BufferedImage image, boolean interleaved) {
+        long length = getByteLength(image);
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException(String.format("The image is too large (%d bytes) to fit in an array", length));
+        }
+
+        byte[] bytes = new byte[(int) length];
+        write(image, interleaved, ByteBuffer.wrap(bytes));
+        return bytes;
+    }
+
+    /**
+     * Write the header and the pixel values of the provided image to the provided buffer, starting at its
+     * current position. The buffer must have at least {@link #getByteLength(BufferedImage)} remaining bytes.
+     * The byte order of the buffer is set to little-endian.
+     *
+     * @param image  the image to write
+     * @param interleaved  whether to write pixels interleaved (height, width, channels) or planar (channels, height, width)
+     * @param buffer  the buffer to write to
+     * @throws IllegalArgumentException if the data type of the image is not supported
+     */
+    public static void write(BufferedImage image, boolean interleaved, ByteBuffer buffer) {
+        Raster raster = image.getRaster();
+        DataType dataType = getDataType(image);
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+        int nChannels = raster.getNumBands();
+
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(width);
+        buffer.putInt(height);
+        buffer.putInt(nChannels);
+        buffer.putInt(dataType.getCode());
+        buffer.putInt(interleaved ? 1 : 0);
+        buffer.putInt(0);
+
+        if (interleaved) {
+            // Write row by row to avoid allocating an array as large as the image
+            for (int y = 0; y < height; y++) {
+                writeSamples(raster, dataType, 0, y, width, 1, -1, buffer);
+            }
+        } else {
+            for (int c = 0; c < nChannels; c++) {
+                writeSamples(raster, dataType, 0, 0, width, height, c, buffer);
+            }
+        }
+    }
+
+    /**
+     * Write samples of a portion of a raster. If band is negative, all bands are written interleaved.
+     */
+    private static void writeSamples(Raster raster, DataType dataType, int x, int y, int width, int height, int band, ByteBuffer buffer) {
+        switch (dataType) {
+            case FLOAT32 -> {
+                float[] samples = band < 0 ?
+                        raster.getPixels(x, y, width, height, (float[]) null) :
+                        raster.getSamples(x, y, width, height, band, (float[]) null);
+                buffer.asFloatBuffer().put(samples);
+                buffer.position(buffer.position() + samples.length * Float.BYTES);
+            }
+            case FLOAT64 -> {
+                double[] samples = band < 0 ?
+                        raster.getPixels(x, y, width, height, (double[]) null) :
+                        raster.getSamples(x, y, width, height, band, (double[]) null);
+                buffer.asDoubleBuffer().put(samples);
+                buffer.position(buffer.position() + samples.length * Double.BYTES);
+            }
+            default -> {
+                int[] samples = band < 0 ?
+                        raster.getPixels(x, y, width, height, (int[]) null) :
+                        raster.getSamples(x, y, width, height, band, (int[]) null);
+                switch (dataType.getBytesPerSample()) {
+                    case 1 -> {
+                        for (int sample : samples) {
+                            buffer.put((byte) sample);
+                        }
+                    }
+                    case 2 -> {
+                        buffer.asShortBuffer().put(toShorts(samples));
+                        buffer.position(buffer.position() + samples.length * Short.BYTES);
+                    }
+                    default -> {
+                        buffer.asIntBuffer().put(samples);
+                        buffer.position(buffer.position() + samples.length * Integer.BYTES);
+                    }
+                }
+            }
+        }
+    }
+
+    private static short[] toShorts(int[] samples) {
+        short[] shorts = new short[samples.length];
+        for (int i = 0; i < samples.length; i++) {
+            shorts[i] = (short) samples[i];
+        }
+        return shorts;
+    }
+}
@@ -0,0 +1,65 @@
+package qupath.ext.py4j.core;
+
+import javafx.application.Platform;
+import javafx.scene.Scene;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Utility methods to wait until the JavaFX Application Thread has rendered a new pulse.
+ */
+class RenderBarrier {
+
+    private static final Logger logger = LoggerFactory.getLogger(RenderBarrier.class);
+
+    private RenderBarrier() {
+        throw new AssertionError("This class is not instantiable.");
+    }
+
+    /**
+     * Request a new pulse and block until the provided scene has been laid out during this pulse and the pulse
+     * is finished (which includes rendering), or until the timeout expires.
+     * <p>
+     * If this is called from the JavaFX Application Thread, this function returns immediately, as
+     * the pulse cannot happen while this thread is blocked.
+     *
+     * @param scene  the scene that should be rendered. If null, this function returns immediately
+     * @param timeoutMillis  the maximum number of milliseconds to wait
+     * @return whether a pulse was processed before the timeout expired
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public static boolean awaitNextPulse(Scene scene, long timeoutMillis) throws InterruptedException {
+        if (scene == null) {
+            return true;
+        }
+        if (Platform.isFxApplicationThread()) {
+            logger.debug("Cannot wait for the next pulse from the JavaFX Application Thread");
+            return false;
+        }
+
+        CountDownLatch latch = new CountDownLatch(1);
+        Platform.runLater(() -> {
+            scene.addPostLayoutPulseListener(new Runnable() {
+                @Override
+                public void run() {
+                    // Runnables posted during a pulse are run once the pulse is finished. This also
+                    // avoids removing the listener while the scene iterates over its listeners
+                    Platform.runLater(() -> {
+                        scene.removePostLayoutPulseListener(this);
+                        latch.countDown();
+                    });
+                }
+            });
+            Platform.requestNextPulse();
+        });
+
+        boolean pulseProcessed = latch.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        if (!pulseProcessed) {
+            logger.debug("No pulse processed after {} ms", timeoutMillis);
+        }
+        return pulseProcessed;
+    }
+}
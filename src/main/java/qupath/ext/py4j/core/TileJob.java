@@ -0,0 +1,305 @@
+package qupath.ext.py4j.core;
+
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import qupath.lib.common.ThreadTools;
+import qupath.lib.images.servers.ImageServer;
+import qupath.lib.regions.RegionRequest;
+import qupath.lib.roi.GeometryTools;
+import qupath.lib.roi.interfaces.ROI;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A job that reads the tiles of an image in order, batch by batch.
+ * <p>
+ * Tiles are read in parallel in the background: while a batch is consumed, the next tiles are already
+ * being read, so that the throughput is limited by the speed of reading the image rather than by the
+ * number of calls made to this job. The threads reading tiles stop once all tiles are read, or after
+ * being idle for {@link #IDLE_THREAD_TIMEOUT_MILLIS} (for example if the job is not consumed until the end).
+ * <p>
+ * Each tile read is a heavy call limited by {@link QuPathEntryPoint#setHeavyCallLimits(int, int, long)}, like
+ * other pixel reads. A tile read rejected by these limits fails like a tile that cannot be read. When heavy calls
+ * are limited, a job uses fewer threads than the maximum number of concurrent heavy calls, so that other clients
+ * can still run heavy calls while a job is being read.
+ * <p>
+ * Tiles are encoded either with an image format (see {@link QuPathEntryPoint#getImageBytes(BufferedImage, String)}),
+ * or as raw pixels if the format is "raw" (planar) or "raw interleaved" (see
+ * {@link QuPathEntryPoint#getRawBytes(BufferedImage, boolean)}).
+ * <p>
+ * This class is thread-safe.
+ */
+public class TileJob implements AutoCloseable {
+
+    /**
+     * The number of milliseconds after which an idle thread reading tiles is stopped.
+     */
+    public static final long IDLE_THREAD_TIMEOUT_MILLIS = 5000;
+    private static final ThreadFactory threadFactory = ThreadTools.createThreadFactory("py4j-tile-job-", true);
+    private final Deque<Future<byte[]>> pendingTiles = new ArrayDeque<>();
+    private final ImageServer<BufferedImage> server;
+    private final List<RegionRequest> tiles;
+    private final String format;
+    private final ThreadPoolExecutor executor;
+    private final int maxPendingTiles;
+    private int nextTileToSubmit = 0;
+    private int nextTileToReturn = 0;
+
+    /**
+     * Create the job and start reading the first tiles.
+     *
+     * @param server  the image to read
+     * @param tiles  the regions to read, in order
+     * @param format  the format tiles should be encoded with
+     * @param nThreads  the number of threads reading tiles in parallel. It is reduced if needed to leave at least one
+     *                  heavy call available to other clients (see {@link QuPathEntryPoint#setHeavyCallLimits(int, int, long)})
+     * @param nPrefetch  the maximum number of tiles read in advance
+     * @throws IllegalArgumentException if the number of threads or the number of tiles read in advance is not positive
+     */
+    public TileJob(ImageServer<BufferedImage> server, List<RegionRequest> tiles, String format, int nThreads, int nPrefetch) {
+        if (nThreads <= 0) {
+            throw new IllegalArgumentException(String.format("The number of threads %d is not positive", nThreads));
+        }
+        if (nPrefetch <= 0) {
+            throw new IllegalArgumentException(String.format("The number of tiles to prefetch %d is not positive", nPrefetch));
+        }
+
+        this.server = server;
+        this.tiles = List.copyOf(tiles);
+        this.format = format;
+        int maxThreads = getMaxThreads(nThreads);
+        this.executor = new ThreadPoolExecutor(
+                maxThreads,
+                maxThreads,
+                IDLE_THREAD_TIMEOUT_MILLIS,
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                threadFactory
+        );
+        this.executor.allowCoreThreadTimeOut(true);
+        this.maxPendingTiles = nPrefetch;
+
+        synchronized (this) {
+            submitTiles();
+        }
+    }
+
+    /**
+     * Compute the tiles covering an image, or the bounding box of a ROI.
+     *
+     * @param server  the image to tile
+     * @param downsample  the downsample tiles should be read at
+     * @param tileSize  the width and height of tiles, in pixels of the downsampled image
+     * @param overlap  the overlap between adjacent tiles, in pixels of the downsampled image
+     * @param mask  if not null, only tiles intersecting this ROI are returned, and the z-slice and
+     *              time point of tiles correspond to the ones of the ROI
+     * @param z  the z-slice of the tiles, if no mask is provided
+     * @param t  the time point of the tiles, if no mask is provided
+     * @return the tiles, ordered row by row. Tiles at the border of the image may be smaller than the tile size
+     * @throws IllegalArgumentException if the tile size is not positive, or if the overlap is negative or not
+     * smaller than the tile size
+     */
+    public static List<RegionRequest> computeTiles(
+            ImageServer<BufferedImage> server,
+            double downsample,
+            int tileSize,
+            int overlap,
+            ROI mask,
+            int z,
+            int t
+    ) {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException(String.format("The tile size %d is not positive", tileSize));
+        }
+        if (overlap < 0 || overlap >= tileSize) {
+            throw new IllegalArgumentException(String.format("The overlap %d must be between 0 and the tile size %d", overlap, tileSize));
+        }
+
+        int fullTileSize = (int) Math.round(tileSize * downsample);
+        int fullStep = Math.max(1, (int) Math.round((tileSize - overlap) * downsample));
+
+        int xStart = 0;
+        int yStart = 0;
+        int xEnd = server.getWidth();
+        int yEnd = server.getHeight();
+        PreparedGeometry maskGeometry = null;
+        if (mask != null) {
+            xStart = Math.max(0, (int) Math.floor(mask.getBoundsX()));
+            yStart = Math.max(0, (int) Math.floor(mask.getBoundsY()));
+            xEnd = Math.min(xEnd, (int) Math.ceil(mask.getBoundsX() + mask.getBoundsWidth()));
+            yEnd = Math.min(yEnd, (int) Math.ceil(mask.getBoundsY() + mask.getBoundsHeight()));
+            maskGeometry = PreparedGeometryFactory.prepare(mask.getGeometry());
+            z = mask.getZ();
+            t = mask.getT();
+        }
+
+        List<RegionRequest> tiles = new ArrayList<>();
+        for (int y = yStart; y < yEnd; y += fullStep) {
+            int height = Math.min(fullTileSize, server.getHeight() - y);
+
+            for (int x = xStart; x < xEnd; x += fullStep) {
+                int width = Math.min(fullTileSize, server.getWidth() - x);
+
+                if (maskGeometry == null || maskGeometry.intersects(GeometryTools.createRectangle(x, y, width, height))) {
+                    tiles.add(RegionRequest.createInstance(server.getPath(), downsample, x, y, width, height, z, t));
+                }
+
+                // With an overlap, the next tile would only contain pixels already covered by this one
+                if (x + fullTileSize >= xEnd) {
+                    break;
+                }
+            }
+
+            if (y + fullTileSize >= yEnd) {
+                break;
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * @return the total number of tiles of this job
+     */
+    public int getTileCount() {
+        return tiles.size();
+    }
+
+    /**
+     * @return the regions of all tiles of this job, in order
+     */
+    public List<RegionRequest> getTiles() {
+        return tiles;
+    }
+
+    /**
+     * Get the regions of all tiles of this job, in order, as little-endian 32-bit integers. Each tile is
+     * represented by four integers: x, y, width, height (in pixels of the full resolution image). This can be
+     * read from Python with {@code numpy.frombuffer(regions, dtype="<i4").reshape(-1, 4)}.
+     *
+     * @return the regions of all tiles of this job
+     */
+    public byte[] getTileRegions() {
+        int[] regions = new int[tiles.size() * 4];
+        for (int i = 0; i < tiles.size(); i++) {
+            RegionRequest tile = tiles.get(i);
+            regions[i * 4] = tile.getX();
+            regions[i * 4 + 1] = tile.getY();
+            regions[i * 4 + 2] = tile.getWidth();
+            regions[i * 4 + 3] = tile.getHeight();
+        }
+        return BinaryTools.toBytes(regions);
+    }
+
+    /**
+     * @return the index of the next tile returned by {@link #nextBatch(int)}
+     */
+    public synchronized int getPosition() {
+        return nextTileToReturn;
+    }
+
+    /**
+     * @return whether some tiles remain to be returned
+     */
+    public synchronized boolean hasNext() {
+        return nextTileToReturn < tiles.size();
+    }
+
+    /**
+     * Get the next encoded tiles, waiting for them to be read if needed.
+     * <p>
+     * If a tile cannot be read, the batch stops before it: the tiles read before the failed tile are returned,
+     * and the next call throws the error of the failed tile. A call that throws the error of a tile skips this
+     * tile, so that the following call continues with the next tile (and {@link #getPosition()} indicates the
+     * index of the next tile). If the calling thread is interrupted, no tile is skipped.
+     *
+     * @param maxTiles  the maximum number of tiles to return
+     * @return a list of at most maxTiles encoded tiles, in the order of {@link #getTiles()}
+     * @throws IOException when an error occurs while reading the first tile of the batch
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     * @throws NoSuchElementException if no tiles remain to be returned
+     */
+    public synchronized List<byte[]> nextBatch(int maxTiles) throws IOException, InterruptedException {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No tiles remain to be returned");
+        }
+
+        List<byte[]> batch = new ArrayList<>();
+        Deque<Future<byte[]>> returnedTiles = new ArrayDeque<>();
+        while (batch.size() < maxTiles && hasNext()) {
+            Future<byte[]> tile = pendingTiles.removeFirst();
+            nextTileToReturn++;
+            submitTiles();
+
+            try {
+                batch.add(tile.get());
+                returnedTiles.push(tile);
+            } catch (ExecutionException e) {
+                if (!batch.isEmpty()) {
+                    // Keep the failed tile, so that its error is thrown by the next call
+                    pendingTiles.addFirst(tile);
+                    nextTileToReturn--;
+                    return batch;
+                } else if (e.getCause() instanceof IOException ioException) {
+                    throw ioException;
+                } else {
+                    throw new IOException(e.getCause());
+                }
+            } catch (InterruptedException e) {
+                pendingTiles.addFirst(tile);
+                nextTileToReturn--;
+                while (!returnedTiles.isEmpty()) {
+                    pendingTiles.addFirst(returnedTiles.pop());
+                    nextTileToReturn--;
+                }
+                throw e;
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Stop reading tiles and release the threads of this job. No more tiles can be returned after calling this function.
+     */
+    @Override
+    public synchronized void close() {
+        executor.shutdownNow();
+        pendingTiles.clear();
+        nextTileToReturn = tiles.size();
+    }
+
+    private static int getMaxThreads(int nThreads) {
+        int maxConcurrentCalls = QuPathEntryPoint.getCallLimiter().getMaxConcurrentCalls();
+        if (maxConcurrentCalls > 0) {
+            return Math.min(nThreads, Math.max(1, maxConcurrentCalls - 1));
+        } else {
+            return nThreads;
+        }
+    }
+
+    private void submitTiles() {
+        while (pendingTiles.size() < maxPendingTiles && nextTileToSubmit < tiles.size() && !executor.isShutdown()) {
+            RegionRequest tile = tiles.get(nextTileToSubmit);
+            pendingTiles.addLast(executor.submit(QuPathEntryPoint.getCallMetricsRecorder().attributeToConnection(
+                    () -> QuPathEntryPoint.getCallLimiter().call(() -> QuPathEntryPoint.readRegionBytes(server, tile, format))
+            )));
+            nextTileToSubmit++;
+        }
+
+        // Let the threads stop once the last tiles are read
+        if (nextTileToSubmit == tiles.size()) {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package qupath.ext.py4j.core;
+
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.ByteOrderValues;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBReader;
+import org.locationtech.jts.io.WKBWriter;
+import qupath.lib.regions.ImagePlane;
+import qupath.lib.roi.GeometryTools;
+import qupath.lib.roi.interfaces.ROI;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Utility methods to convert ROIs to and from the Well-Known Binary (WKB) representation of their geometry.
+ * <p>
+ * Several geometries can be packed into a single array of bytes. In this case, the array starts with the number
+ * of geometries as a little-endian 32-bit integer, followed by each geometry preceded by its length in bytes
+ * as a little-endian 32-bit integer. A length of 0 indicates a missing geometry (for example of an object
+ * without ROI), so that geometries stay aligned with other properties of the objects.
+ */
+class WkbTools {
+
+    private WkbTools() {
+        throw new AssertionError("This class is not instantiable.");
+    }
+
+    /**
+     * Convert a ROI to a little-endian WKB representation of its geometry.
+     *
+     * @param roi  the ROI to convert
+     * @return a WKB representation of the provided ROI
+     */
+    public static byte[] toWkb(ROI roi) {
+        return createWriter().write(roi.getGeometry());
+    }
+
+    /**
+     * Convert several ROIs to a packed WKB representation, as described in this class documentation.
+     *
+     * @param rois  the ROIs to convert. Null elements are written as missing geometries
+     * @return a packed WKB representation of the provided ROIs
+     */
+    public static byte[] toPackedWkb(Collection<? extends ROI> rois) {
+        WKBWriter writer = createWriter();
+        List<byte[]> wkbs = new ArrayList<>(rois.size());
+        long length = Integer.BYTES;
+        for (ROI roi: rois) {
+            byte[] wkb = roi == null ? new byte[0] : writer.write(roi.getGeometry());
+            wkbs.add(wkb);
+            length += Integer.BYTES + wkb.length;
+        }
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException(String.format("The geometries are too large (%d bytes) to fit in an array", length));
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(wkbs.size());
+        for (byte[] wkb: wkbs) {
+            buffer.putInt(wkb.length);
+            buffer.put(wkb);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Create a ROI from a WKB representation of a geometry.
+     *
+     * @param wkb  the WKB representation of the geometry
+     * @param plane  the plane the ROI should belong to
+     * @return a ROI corresponding to the provided geometry
+     * @throws IllegalArgumentException if the provided bytes are not a valid WKB representation
+     */
+    public static ROI toROI(byte[] wkb, ImagePlane plane) {
+        return GeometryTools.geometryToROI(readGeometry(new WKBReader(), wkb), plane);
+    }
+
+    /**
+     * Create ROIs from a packed WKB representation, as described in this class documentation.
+     *
+     * @param packedWkb  the packed WKB representation of the geometries
+     * @param plane  the plane the ROIs should belong to
+     * @return a list of ROIs corresponding to the provided geometries
+     * @throws IllegalArgumentException if the provided bytes are not a valid packed WKB representation,
+     * or if a geometry is missing
+     */
+    public static List<ROI> toROIs(byte[] packedWkb, ImagePlane plane) {
+        WKBReader reader = new WKBReader();
+        ByteBuffer buffer = ByteBuffer.wrap(packedWkb).order(ByteOrder.LITTLE_ENDIAN);
+
+        try {
+            // Sizes are checked before allocating, as they come from untrusted bytes
+            int nGeometries = buffer.getInt();
+            if (nGeometries < 0 || nGeometries > buffer.remaining() / Integer.BYTES) {
+                throw new IllegalArgumentException(String.format("Invalid number of geometries: %d", nGeometries));
+            }
+
+            List<ROI> rois = new ArrayList<>(nGeometries);
+            for (int i = 0; i < nGeometries; i++) {
+                int length = buffer.getInt();
+                if (length < 0 || length > buffer.remaining()) {
+                    throw new IllegalArgumentException(String.format("Invalid length of geometry %d: %d", i, length));
+                }
+                if (length == 0) {
+                    throw new IllegalArgumentException(String.format("Geometry %d is missing", i));
+                }
+
+                byte[] wkb = new byte[length];
+                buffer.get(wkb);
+                rois.add(GeometryTools.geometryToROI(readGeometry(reader, wkb), plane));
+            }
+            return rois;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("The packed WKB representation is truncated or corrupted", e);
+        }
+    }
+
+    private static WKBWriter createWriter() {
+        return new WKBWriter(2, ByteOrderValues.LITTLE_ENDIAN);
+    }
+
+    private static Geometry readGeometry(WKBReader reader, byte[] wkb) {
+        try {
+            return reader.read(wkb);
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Invalid WKB representation", e);
+        }
+    }
+}
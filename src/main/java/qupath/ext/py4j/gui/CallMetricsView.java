@@ -0,0 +1,91 @@
+package qupath.ext.py4j.gui;
+
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.event.ActionEvent;
+import javafx.fxml.FXML;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.layout.VBox;
+import qupath.ext.py4j.core.CallMetrics;
+import qupath.ext.py4j.core.CallStatistics;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * A window showing the statistics of each method recorded by a {@link CallMetrics}.
+ * The statistics are not updated automatically: they are read when the window is created
+ * and when the user refreshes it.
+ */
+class CallMetricsView extends VBox {
+
+    private final CallMetrics callMetrics;
+    @FXML
+    private TableView<Map.Entry<String, CallStatistics>> table;
+    @FXML
+    private TableColumn<Map.Entry<String, CallStatistics>, String> methodColumn;
+    @FXML
+    private TableColumn<Map.Entry<String, CallStatistics>, Long> countColumn;
+    @FXML
+    private TableColumn<Map.Entry<String, CallStatistics>, Long> errorsColumn;
+    @FXML
+    private TableColumn<Map.Entry<String, CallStatistics>, String> payloadColumn;
+    @FXML
+    private TableColumn<Map.Entry<String, CallStatistics>, String> meanColumn;
+    @FXML
+    private TableColumn<Map.Entry<String, CallStatistics>, String> p50Column;
+    @FXML
+    private TableColumn<Map.Entry<String, CallStatistics>, String> p95Column;
+    @FXML
+    private TableColumn<Map.Entry<String, CallStatistics>, String> p99Column;
+
+    /**
+     * Create the window.
+     *
+     * @param callMetrics  the metrics to show
+     * @throws IOException when an error occurs while creating the window
+     */
+    public CallMetricsView(CallMetrics callMetrics) throws IOException {
+        this.callMetrics = callMetrics;
+
+        UiUtils.loadFXML(this, CallMetricsView.class.getResource("call_metrics.fxml"));
+
+        methodColumn.setCellValueFactory(cellData -> new ReadOnlyStringWrapper(cellData.getValue().getKey()));
+        countColumn.setCellValueFactory(cellData -> new ReadOnlyObjectWrapper<>(cellData.getValue().getValue().getCount()));
+        errorsColumn.setCellValueFactory(cellData ->
+                new ReadOnlyObjectWrapper<>(cellData.getValue().getValue().getErrorCount())
+        );
+        payloadColumn.setCellValueFactory(cellData -> new ReadOnlyStringWrapper(String.format(
+                "%.2f", cellData.getValue().getValue().getPayloadBytes() / (1024d * 1024d)
+        )));
+        meanColumn.setCellValueFactory(cellData -> formatMillis(cellData.getValue().getValue().getMeanMillis()));
+        p50Column.setCellValueFactory(cellData -> formatMillis(cellData.getValue().getValue().getPercentileMillis(50)));
+        p95Column.setCellValueFactory(cellData -> formatMillis(cellData.getValue().getValue().getPercentileMillis(95)));
+        p99Column.setCellValueFactory(cellData -> formatMillis(cellData.getValue().getValue().getPercentileMillis(99)));
+
+        refresh();
+    }
+
+    /**
+     * Read the statistics again and show them.
+     */
+    public void refresh() {
+        table.getItems().setAll(callMetrics.getMethodStatistics().entrySet());
+    }
+
+    @FXML
+    private void onRefreshClicked(ActionEvent ignoredEvent) {
+        refresh();
+    }
+
+    @FXML
+    private void onResetClicked(ActionEvent ignoredEvent) {
+        callMetrics.reset();
+        refresh();
+    }
+
+    private static ReadOnlyStringWrapper formatMillis(double millis) {
+        return new ReadOnlyStringWrapper(String.format("%.1f", millis));
+    }
+}
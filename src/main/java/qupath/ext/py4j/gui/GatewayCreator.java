@@ -13,6 +13,7 @@ import qupath.fx.dialogs.Dialogs;
 
 import java.io.IOException;
 import java.text.MessageFormat;
+import java.util.List;
 import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.UUID;
@@ -21,32 +22,79 @@ import java.util.regex.Pattern;
 
 /**
  * A form to start a {@link GatewayManager} that ask the user
- * for a port and an optional token.
+ * for a name, a port, an optional token, and optional limits.
  */
 class GatewayCreator extends VBox {
 
     private static final ResourceBundle resources = UiUtils.getResources();
     @FXML
+    private TextField name;
+    @FXML
     private TextField port;
     @FXML
     private TextField token;
     @FXML
     private Button copy;
+    @FXML
+    private TextField maxConnections;
+    @FXML
+    private TextField maxHeavyCalls;
+    @FXML
+    private TextField maxQueuedCalls;
+    @FXML
+    private TextField queueTimeout;
+    @FXML
+    private TextField bulkDataPort;
+    @FXML
+    private TextField callbackPort;
+    private final int initialMaxHeavyCalls;
+    private final int initialMaxQueuedCalls;
+    private final long initialQueueTimeoutMillis;
 
     /**
      * Create the form.
      *
+     * @param name the default name to show
      * @param port the default port to show
+     * @param maxHeavyCalls the current maximum number of heavy calls running at the same time, or 0 if not limited
+     * @param maxQueuedCalls the current maximum number of heavy calls waiting to run, or 0 if not limited
+     * @param queueTimeoutMillis the current maximum number of milliseconds a heavy call can wait, or 0 if not limited
      * @throws IOException when an error occurs while creating the window
      */
-    public GatewayCreator(int port) throws IOException {
+    public GatewayCreator(
+            String name,
+            int port,
+            int maxHeavyCalls,
+            int maxQueuedCalls,
+            long queueTimeoutMillis
+    ) throws IOException {
         UiUtils.loadFXML(this, GatewayCreator.class.getResource("gateway_creator.fxml"));
+        this.initialMaxHeavyCalls = Math.max(0, maxHeavyCalls);
+        this.initialMaxQueuedCalls = Math.max(0, maxQueuedCalls);
+        this.initialQueueTimeoutMillis = Math.max(0, queueTimeoutMillis);
+
+        this.name.setPromptText(name);
+        this.name.setText(name);
 
         this.port.setPromptText(MessageFormat.format(resources.getString("GatewayCreator.defaultPort"), port));
         this.port.setTextFormatter(new TextFormatter<>(getPositiveIntegerFilter()));
         this.port.setText(String.valueOf(port));
 
         copy.disableProperty().bind(token.textProperty().isEmpty());
+
+        for (TextField limit: List.of(maxConnections, maxHeavyCalls, maxQueuedCalls, queueTimeout)) {
+            limit.setPromptText(resources.getString("GatewayCreator.unlimited"));
+            limit.setTextFormatter(new TextFormatter<>(getPositiveIntegerFilter()));
+        }
+        setLimit(this.maxHeavyCalls, maxHeavyCalls);
+        setLimit(this.maxQueuedCalls, maxQueuedCalls);
+        setLimit(this.queueTimeout, queueTimeoutMillis);
+
+        bulkDataPort.setPromptText(resources.getString("GatewayCreator.bulkDataDisabled"));
+        bulkDataPort.setTextFormatter(new TextFormatter<>(getPositiveIntegerFilter()));
+
+        callbackPort.setPromptText(resources.getString("GatewayCreator.callbackDisabled"));
+        callbackPort.setTextFormatter(new TextFormatter<>(getPositiveIntegerFilter()));
     }
 
     @FXML
@@ -63,6 +111,13 @@ class GatewayCreator extends VBox {
         );
     }
 
+    /**
+     * @return the name indicated by the user, or the default name if not provided
+     */
+    public String getName() {
+        return name.getText() == null || name.getText().isBlank() ? name.getPromptText() : name.getText().strip();
+    }
+
     /**
      * @return the port indicated by the user, or -1 if not provided
      */
@@ -81,6 +136,80 @@ class GatewayCreator extends VBox {
         return token.getText();
     }
 
+    /**
+     * @return the maximum number of Python clients that can be connected at the same time, or 0 if not limited
+     */
+    public int getMaxConnections() {
+        return (int) getLimit(maxConnections);
+    }
+
+    /**
+     * @return the maximum number of heavy calls running at the same time, or 0 if not limited
+     */
+    public int getMaxHeavyCalls() {
+        return (int) getLimit(maxHeavyCalls);
+    }
+
+    /**
+     * @return the maximum number of heavy calls waiting to run, or 0 if not limited
+     */
+    public int getMaxQueuedCalls() {
+        return (int) getLimit(maxQueuedCalls);
+    }
+
+    /**
+     * @return the maximum number of milliseconds a heavy call can wait to run, or 0 if not limited
+     */
+    public long getQueueTimeoutMillis() {
+        return getLimit(queueTimeout);
+    }
+
+    /**
+     * @return whether the user changed the limits of heavy calls provided when creating this form. The limits are
+     * shared by all gateways, so they should only be applied if they were changed
+     */
+    public boolean areHeavyCallLimitsChanged() {
+        return getMaxHeavyCalls() != initialMaxHeavyCalls ||
+                getMaxQueuedCalls() != initialMaxQueuedCalls ||
+                getQueueTimeoutMillis() != initialQueueTimeoutMillis;
+    }
+
+    /**
+     * @return the port of the bulk data server indicated by the user (0 to use any free port),
+     * or -1 if the bulk data server should not be started
+     */
+    public int getBulkDataPort() {
+        try {
+            return Integer.parseInt(bulkDataPort.getText());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return the port of the callback server of Python clients indicated by the user (0 to use the default
+     * Py4J port), or -1 if the default configuration of Py4J should be used
+     */
+    public int getCallbackPort() {
+        try {
+            return Integer.parseInt(callbackPort.getText());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void setLimit(TextField textField, long limit) {
+        textField.setText(limit > 0 ? String.valueOf(limit) : "");
+    }
+
+    private static long getLimit(TextField textField) {
+        try {
+            return Long.parseLong(textField.getText());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
     private UnaryOperator<TextFormatter.Change> getPositiveIntegerFilter() {
         Pattern unsignerIntegerPattern = Pattern.compile("\\d*");
 
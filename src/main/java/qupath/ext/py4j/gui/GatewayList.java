@@ -0,0 +1,119 @@
+package qupath.ext.py4j.gui;
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.beans.value.ChangeListener;
+import javafx.collections.ListChangeListener;
+import javafx.event.ActionEvent;
+import javafx.fxml.FXML;
+import javafx.scene.control.Button;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.layout.VBox;
+import qupath.ext.py4j.core.Gateway;
+import qupath.ext.py4j.core.GatewayManager;
+
+import java.io.IOException;
+import java.util.ResourceBundle;
+
+/**
+ * A window listing the gateways of a {@link GatewayManager} with their state,
+ * and allowing to start and stop gateways.
+ */
+class GatewayList extends VBox {
+
+    private static final ResourceBundle resources = UiUtils.getResources();
+    private final GatewayManager gatewayManager;
+    private final Runnable onStartRequested;
+    private final ChangeListener<Object> gatewayStateListener = (p, o, n) -> Platform.runLater(this::refresh);
+    @FXML
+    private TableView<Gateway> table;
+    @FXML
+    private TableColumn<Gateway, String> nameColumn;
+    @FXML
+    private TableColumn<Gateway, Integer> portColumn;
+    @FXML
+    private TableColumn<Gateway, String> authenticationColumn;
+    @FXML
+    private TableColumn<Gateway, String> stateColumn;
+    @FXML
+    private TableColumn<Gateway, Integer> connectionsColumn;
+    @FXML
+    private TableColumn<Gateway, String> bulkDataPortColumn;
+    @FXML
+    private Button stop;
+
+    /**
+     * Create the window.
+     *
+     * @param gatewayManager  the gateway manager whose gateways should be listed
+     * @param onStartRequested  a function called from the JavaFX Application Thread when the user wants to start a new gateway
+     * @throws IOException when an error occurs while creating the window
+     */
+    public GatewayList(GatewayManager gatewayManager, Runnable onStartRequested) throws IOException {
+        this.gatewayManager = gatewayManager;
+        this.onStartRequested = onStartRequested;
+
+        UiUtils.loadFXML(this, GatewayList.class.getResource("gateway_list.fxml"));
+
+        nameColumn.setCellValueFactory(cellData -> new ReadOnlyStringWrapper(cellData.getValue().getName()));
+        portColumn.setCellValueFactory(cellData -> new ReadOnlyObjectWrapper<>(cellData.getValue().getPort()));
+        authenticationColumn.setCellValueFactory(cellData -> new ReadOnlyStringWrapper(resources.getString(
+                cellData.getValue().isAuthenticated() ? "GatewayList.token" : "GatewayList.noToken"
+        )));
+        stateColumn.setCellValueFactory(cellData -> new ReadOnlyStringWrapper(resources.getString(
+                cellData.getValue().isRunning().get() ? "GatewayList.running" : "GatewayList.stopped"
+        )));
+        connectionsColumn.setCellValueFactory(cellData ->
+                new ReadOnlyObjectWrapper<>(cellData.getValue().getNumConnections().get())
+        );
+        bulkDataPortColumn.setCellValueFactory(cellData -> new ReadOnlyStringWrapper(
+                cellData.getValue().getBulkDataPort() < 0 ?
+                        resources.getString("GatewayList.bulkDataDisabled") :
+                        String.valueOf(cellData.getValue().getBulkDataPort())
+        ));
+
+        stop.disableProperty().bind(table.getSelectionModel().selectedItemProperty().isNull());
+
+        for (Gateway gateway: gatewayManager.getGateways()) {
+            listenToGateway(gateway);
+        }
+        gatewayManager.getGateways().addListener((ListChangeListener<? super Gateway>) change -> {
+            while (change.next()) {
+                change.getAddedSubList().forEach(this::listenToGateway);
+                change.getRemoved().forEach(this::stopListeningToGateway);
+            }
+            Platform.runLater(this::refresh);
+        });
+        refresh();
+    }
+
+    @FXML
+    private void onStartClicked(ActionEvent ignoredEvent) {
+        onStartRequested.run();
+    }
+
+    @FXML
+    private void onStopClicked(ActionEvent ignoredEvent) {
+        Gateway gateway = table.getSelectionModel().getSelectedItem();
+        if (gateway != null) {
+            gatewayManager.stop(gateway.getName());
+        }
+    }
+
+    private void listenToGateway(Gateway gateway) {
+        gateway.isRunning().addListener(gatewayStateListener);
+        gateway.getNumConnections().addListener(gatewayStateListener);
+    }
+
+    private void stopListeningToGateway(Gateway gateway) {
+        gateway.isRunning().removeListener(gatewayStateListener);
+        gateway.getNumConnections().removeListener(gatewayStateListener);
+    }
+
+    private void refresh() {
+        table.getItems().setAll(gatewayManager.getGateways());
+        table.refresh();
+    }
+}
@@ -17,6 +17,7 @@
 package qupath.ext.py4j.gui;
 
 import java.io.IOException;
+import java.text.MessageFormat;
 import java.util.Optional;
 import java.util.ResourceBundle;
 
@@ -35,6 +36,7 @@ import javafx.scene.control.ButtonType;
 import javafx.scene.control.Tooltip;
 import py4j.GatewayServer;
 import qupath.ext.py4j.core.GatewayManager;
+import qupath.ext.py4j.core.GatewayOptions;
 import qupath.fx.dialogs.Dialogs;
 import qupath.fx.prefs.controlsfx.PropertyItemBuilder;
 import qupath.lib.common.Version;
@@ -58,6 +60,8 @@ public class QuPathPy4JExtension implements QuPathExtension, GitHubProject {
 	private static final Logger logger = LoggerFactory.getLogger(QuPathPy4JExtension.class);
 	private static final ResourceBundle resources = UiUtils.getResources();
 	private boolean isInstalled = false;
+	private GatewayList gatewayList;
+	private CallMetricsView callMetricsView;
 
 	@Override
 	public void installExtension(QuPathGUI qupath) {
@@ -118,22 +122,22 @@ public class QuPathPy4JExtension implements QuPathExtension, GitHubProject {
 		gatewayMenu.setGraphic(createGatewayIcon(gatewayManager.isRunning()));
 		gatewayMenu.setOnAction(e -> startOrStopGateway(gatewayManager));
 
-		if (gatewayManager.isRunning().get()) {
-			gatewayMenu.setText(resources.getString("Extension.stopGateway"));
-		} else {
-			gatewayMenu.setText(resources.getString("Extension.startGateway"));
-		}
-		gatewayManager.isRunning().addListener((p, o, n) -> Platform.runLater(() -> {
-			if (n) {
-				gatewayMenu.setText(resources.getString("Extension.stopGateway"));
-			} else {
-				gatewayMenu.setText(resources.getString("Extension.startGateway"));
-			}
-		}));
+		updateGatewayMenuText(gatewayMenu, gatewayManager);
+		gatewayManager.isRunning().addListener((p, o, n) -> Platform.runLater(() ->
+				updateGatewayMenuText(gatewayMenu, gatewayManager)
+		));
+
+		MenuItem manageGatewaysMenu = new MenuItem(resources.getString("Extension.manageGateways"));
+		manageGatewaysMenu.setOnAction(e -> showGatewayList(gatewayManager));
+
+		MenuItem callMetricsMenu = new MenuItem(resources.getString("Extension.showCallMetrics"));
+		callMetricsMenu.setOnAction(e -> showCallMetrics(gatewayManager));
 
 		Menu py4JMenu = new Menu("Py4J");
 		py4JMenu.visibleProperty().bind(enablePy4J);
-		py4JMenu.getItems().add(gatewayMenu);
+		// Gateways can start and stop independently, so the number of running gateways is checked when the menu opens
+		py4JMenu.setOnShowing(e -> updateGatewayMenuText(gatewayMenu, gatewayManager));
+		py4JMenu.getItems().addAll(gatewayMenu, manageGatewaysMenu, callMetricsMenu);
 
 		return py4JMenu;
 	}
@@ -171,18 +175,90 @@ public class QuPathPy4JExtension implements QuPathExtension, GitHubProject {
 		return icon;
 	}
 
+	private void updateGatewayMenuText(MenuItem gatewayMenu, GatewayManager gatewayManager) {
+		long nRunningGateways = getNumberOfRunningGateways(gatewayManager);
+
+		if (nRunningGateways == 0) {
+			gatewayMenu.setText(resources.getString("Extension.startGateway"));
+		} else if (nRunningGateways == 1) {
+			gatewayMenu.setText(resources.getString("Extension.stopGateway"));
+		} else {
+			gatewayMenu.setText(resources.getString("Extension.stopAllGateways"));
+		}
+	}
+
 	private void startOrStopGateway(GatewayManager gatewayManager) {
-		if (gatewayManager.isRunning().get()) {
+		long nRunningGateways = getNumberOfRunningGateways(gatewayManager);
+
+		if (nRunningGateways == 0) {
+			promptToStartGateway(gatewayManager);
+		} else if (nRunningGateways == 1 || Dialogs.showConfirmDialog(
+				resources.getString("Extension.gateways"),
+				MessageFormat.format(resources.getString("Extension.stopAllGatewaysConfirmation"), nRunningGateways)
+		)) {
 			gatewayManager.stop();
+		}
+	}
+
+	private void showGatewayList(GatewayManager gatewayManager) {
+		if (gatewayList == null) {
+			try {
+				gatewayList = new GatewayList(gatewayManager, () -> promptToStartGateway(gatewayManager));
+			} catch (IOException e) {
+				logger.error("Error when creating gateway list window", e);
+				return;
+			}
+		}
+
+		Dialogs.builder()
+				.title(resources.getString("Extension.gateways"))
+				.content(gatewayList)
+				.buttons(ButtonType.CLOSE)
+				.resizable()
+				.showAndWait();
+	}
+
+	private void showCallMetrics(GatewayManager gatewayManager) {
+		if (callMetricsView == null) {
+			try {
+				callMetricsView = new CallMetricsView(gatewayManager.getCallMetrics());
+			} catch (IOException e) {
+				logger.error("Error when creating call metrics window", e);
+				return;
+			}
 		} else {
-			promptToStartGateway(gatewayManager);
+			callMetricsView.refresh();
 		}
+
+		Dialogs.builder()
+				.title(resources.getString("Extension.callMetrics"))
+				.content(callMetricsView)
+				.buttons(ButtonType.CLOSE)
+				.resizable()
+				.showAndWait();
 	}
 
 	private void promptToStartGateway(GatewayManager gatewayManager) {
+		// Suggest a name and a port not used by existing gateways. Odd ports are skipped
+		// because Py4J uses the port following the gateway port for callbacks by default
+		int nGateways = gatewayManager.getGateways().size();
+		String defaultName = nGateways == 0 ?
+				GatewayManager.DEFAULT_GATEWAY_NAME :
+				MessageFormat.format(resources.getString("Extension.defaultGatewayName"), nGateways + 1);
+		int defaultPort = GatewayServer.DEFAULT_PORT;
+		while (isPortUsed(gatewayManager, defaultPort)) {
+			defaultPort += 2;
+		}
+
 		GatewayCreator gatewayCreator;
 		try {
-			gatewayCreator = new GatewayCreator(GatewayServer.DEFAULT_PORT);
+			gatewayCreator = new GatewayCreator(
+					defaultName,
+					defaultPort,
+					gatewayManager.getMaxConcurrentHeavyCalls(),
+					gatewayManager.getMaxQueuedHeavyCalls(),
+					gatewayManager.getHeavyCallQueueTimeoutMillis()
+			);
 		} catch (IOException e) {
 			logger.error("Error when creating gateway creator window", e);
 			return;
@@ -199,10 +275,39 @@ public class QuPathPy4JExtension implements QuPathExtension, GitHubProject {
 				logger.warn("Authentication token is blank but not empty");
 			}
 
-			gatewayManager.start(
-					gatewayCreator.getPort(),
-					gatewayCreator.getToken()
-			);
+			try {
+				// Limits are shared by all gateways, so they are only applied if the user changed them
+				if (gatewayCreator.areHeavyCallLimitsChanged()) {
+					gatewayManager.setHeavyCallLimits(
+							gatewayCreator.getMaxHeavyCalls(),
+							gatewayCreator.getMaxQueuedCalls(),
+							gatewayCreator.getQueueTimeoutMillis()
+					);
+				}
+				gatewayManager.start(
+						gatewayCreator.getName(),
+						gatewayCreator.getPort(),
+						gatewayCreator.getToken(),
+						GatewayOptions.builder()
+								.maxConnections(gatewayCreator.getMaxConnections())
+								.bulkDataPort(gatewayCreator.getBulkDataPort())
+								.callbackPort(gatewayCreator.getCallbackPort())
+								.build()
+				);
+			} catch (RuntimeException e) {
+				logger.error("Error when starting gateway", e);
+				Dialogs.showErrorMessage(resources.getString("Extension.gateway"), e.getLocalizedMessage());
+			}
 		}
 	}
+
+	private static long getNumberOfRunningGateways(GatewayManager gatewayManager) {
+		return gatewayManager.getGateways().stream()
+				.filter(gateway -> gateway.isRunning().get())
+				.count();
+	}
+
+	private static boolean isPortUsed(GatewayManager gatewayManager, int port) {
+		return gatewayManager.getGateways().stream().anyMatch(gateway -> gateway.getPort() == port);
+	}
 }
@@ -0,0 +1,187 @@
+package qupath.ext.py4j.headless;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qupath.ext.py4j.core.Gateway;
+import qupath.ext.py4j.core.GatewayManager;
+import qupath.ext.py4j.core.GatewayOptions;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Start a gateway from the command line, without the QuPath user interface and without the JavaFX toolkit.
+ * This is meant for compute nodes running Python batch jobs.
+ * <p>
+ * The gateway runs until the process is stopped. Entry point functions that need the user interface
+ * (for example {@link qupath.ext.py4j.core.QuPathEntryPoint#snapshot(qupath.lib.gui.QuPathGUI)}) throw an
+ * {@link IllegalStateException}, while projects and images can be opened with
+ * {@link qupath.ext.py4j.core.QuPathEntryPoint#loadProject(String)} and
+ * {@link qupath.ext.py4j.core.QuPathEntryPoint#readImageData(qupath.lib.projects.ProjectImageEntry)}.
+ * <p>
+ * See {@link #main(String[])} for the accepted arguments.
+ */
+public class HeadlessGateway {
+
+    /**
+     * The environment variable read to get the token when no token is provided as argument. This avoids
+     * showing the token in the list of processes.
+     */
+    public static final String TOKEN_ENVIRONMENT_VARIABLE = "QUPATH_PY4J_TOKEN";
+    private static final Logger logger = LoggerFactory.getLogger(HeadlessGateway.class);
+    private static final Set<String> OPTIONS = Set.of(
+            "name",
+            "port",
+            "token",
+            "max-connections",
+            "bulk-data-port",
+            "callback-port",
+            "max-heavy-calls",
+            "max-queued-calls",
+            "queue-timeout"
+    );
+    private static final String USAGE = """
+            Usage: HeadlessGateway [options]
+              --name <name>               the name of the gateway (default: %s)
+              --port <port>               the port of the gateway (default: 25333)
+              --token <token>             the token clients must send (default: the %s environment variable,
+                                          or no authentication if it is not set)
+              --max-connections <n>       the maximum number of clients connected at the same time (default: unlimited)
+              --bulk-data-port <port>     the port of the bulk data server, or 0 to use any free port (default: disabled)
+              --callback-port <port>      the port of the callback server of Python clients receiving events, or 0 to
+                                          use the default Py4J port (default: Py4J configuration, without token)
+              --max-heavy-calls <n>       the maximum number of heavy calls running at the same time (default: unlimited)
+              --max-queued-calls <n>      the maximum number of heavy calls waiting to run (default: unlimited)
+              --queue-timeout <millis>    the maximum time a heavy call can wait to run (default: unlimited)
+              --help                      print this message
+            """.formatted(GatewayManager.DEFAULT_GATEWAY_NAME, TOKEN_ENVIRONMENT_VARIABLE);
+
+    private HeadlessGateway() {
+        throw new AssertionError("This class is not instantiable.");
+    }
+
+    /**
+     * Start a gateway and wait until it is stopped.
+     * <p>
+     * Arguments are provided as {@code --name value} or {@code --name=value}. Run with {@code --help}
+     * to print the list of accepted arguments.
+     *
+     * @param args  the command line arguments
+     * @throws InterruptedException if the main thread is interrupted while waiting for the gateway to stop
+     */
+    public static void main(String[] args) throws InterruptedException {
+        System.setProperty("java.awt.headless", "true");
+
+        Map<String, String> options;
+        int port, maxConnections, bulkDataPort, callbackPort, maxHeavyCalls, maxQueuedCalls, queueTimeout;
+        try {
+            options = parseArguments(args);
+            port = getInteger(options, "port", -1);
+            maxConnections = getInteger(options, "max-connections", 0);
+            bulkDataPort = getInteger(options, "bulk-data-port", -1);
+            callbackPort = getInteger(options, "callback-port", -1);
+            maxHeavyCalls = getInteger(options, "max-heavy-calls", 0);
+            maxQueuedCalls = getInteger(options, "max-queued-calls", 0);
+            queueTimeout = getInteger(options, "queue-timeout", 0);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(USAGE);
+            System.exit(2);
+            return;
+        }
+        if (options.containsKey("help")) {
+            System.out.print(USAGE);
+            return;
+        }
+
+        GatewayManager gatewayManager = new GatewayManager();
+        Gateway gateway;
+        try {
+            gatewayManager.setHeavyCallLimits(maxHeavyCalls, maxQueuedCalls, queueTimeout);
+            gateway = gatewayManager.start(
+                    options.getOrDefault("name", GatewayManager.DEFAULT_GATEWAY_NAME),
+                    port,
+                    options.getOrDefault("token", System.getenv(TOKEN_ENVIRONMENT_VARIABLE)),
+                    GatewayOptions.builder()
+                            .maxConnections(maxConnections)
+                            .bulkDataPort(bulkDataPort)
+                            .callbackPort(callbackPort)
+                            .build()
+            );
+        } catch (RuntimeException e) {
+            logger.error("Cannot start gateway", e);
+            System.exit(1);
+            return;
+        }
+
+        CountDownLatch stopped = new CountDownLatch(1);
+        gatewayManager.isRunning().addListener((p, o, n) -> {
+            if (!n) {
+                stopped.countDown();
+            }
+        });
+        Runtime.getRuntime().addShutdownHook(new Thread(gatewayManager::stop, "py4j-headless-shutdown"));
+
+        if (gatewayManager.isRunning().get()) {
+            logger.info(
+                    "Gateway {} listening on port {}{}",
+                    gateway.getName(),
+                    gateway.getPort(),
+                    gateway.getBulkDataPort() < 0 ? "" : String.format(" (bulk data on port %d)", gateway.getBulkDataPort())
+            );
+            stopped.await();
+        } else {
+            logger.error("Gateway {} could not be started on port {}", gateway.getName(), gateway.getPort());
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, String> parseArguments(String[] args) {
+        Map<String, String> options = new HashMap<>();
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException(String.format("Unexpected argument %s", arg));
+            }
+
+            String name = arg.substring(2);
+            if (name.equals("help")) {
+                options.put(name, "");
+                continue;
+            }
+
+            String value;
+            int separator = name.indexOf('=');
+            if (separator >= 0) {
+                value = name.substring(separator + 1);
+                name = name.substring(0, separator);
+            } else if (i + 1 < args.length) {
+                value = args[++i];
+            } else {
+                throw new IllegalArgumentException(String.format("Missing value of %s", arg));
+            }
+
+            if (!OPTIONS.contains(name)) {
+                throw new IllegalArgumentException(String.format("Unknown option --%s", name));
+            }
+            options.put(name, value);
+        }
+        return options;
+    }
+
+    private static int getInteger(Map<String, String> options, String name, int defaultValue) {
+        String value = options.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            return Integer.parseInt(value.strip());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("The value %s of --%s is not an integer", value, name), e);
+        }
+    }
+}
@@ -0,0 +1,5 @@
+/**
+ * This package contains the {@link qupath.ext.py4j.headless.HeadlessGateway HeadlessGateway} to
+ * start gateways from the command line, without the QuPath user interface.
+ */
+package qupath.ext.py4j.headless;
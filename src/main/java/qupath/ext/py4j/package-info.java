@@ -7,6 +7,9 @@
  *     <li>
  *         The {@link qupath.ext.py4j.core core} package contains the main features of the extension.
  *     </li>
+ *     <li>
+ *         The {@link qupath.ext.py4j.headless headless} package starts gateways without the user interface.
+ *     </li>
  * </ul>
  */
 package qupath.ext.py4j;
\ No newline at end of file
@@ -0,0 +1,59 @@
+package qupath.ext.py4j.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TestBinaryTools {
+
+    @Test
+    void Check_Doubles_Are_Little_Endian() {
+        byte[] bytes = BinaryTools.toBytes(new double[] {1.0, Double.NaN, -2.5});
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(3 * Double.BYTES, bytes.length);
+        assertEquals(1.0, buffer.getDouble(0));
+        assertEquals(Double.NaN, buffer.getDouble(8));
+        assertEquals(-2.5, buffer.getDouble(16));
+        // The sign and exponent of 1.0 are in the last byte in little-endian order
+        assertEquals(0x3F, bytes[7]);
+    }
+
+    @Test
+    void Check_Doubles_Round_Trip() {
+        double[] values = {0, -0.0, Double.MIN_VALUE, Double.MAX_VALUE, Double.NEGATIVE_INFINITY, 123.456};
+
+        assertArrayEquals(values, BinaryTools.toDoubles(BinaryTools.toBytes(values)));
+    }
+
+    @Test
+    void Check_Ints_Are_Little_Endian() {
+        byte[] bytes = BinaryTools.toBytes(new int[] {0x01020304, -1});
+
+        assertArrayEquals(new byte[] {4, 3, 2, 1, -1, -1, -1, -1}, bytes);
+    }
+
+    @Test
+    void Check_Invalid_Number_Of_Bytes_For_Doubles() {
+        assertThrows(IllegalArgumentException.class, () -> BinaryTools.toDoubles(new byte[12]));
+    }
+
+    @Test
+    void Check_UUIDs_Are_Big_Endian() {
+        UUID uuid = UUID.fromString("00010203-0405-0607-0809-0a0b0c0d0e0f");
+
+        byte[] bytes = BinaryTools.toBytes(List.of(uuid, uuid));
+
+        assertEquals(32, bytes.length);
+        for (int i = 0; i < 32; i++) {
+            assertEquals(i % 16, bytes[i]);
+        }
+    }
+}
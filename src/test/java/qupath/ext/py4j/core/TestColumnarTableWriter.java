@@ -0,0 +1,218 @@
+package qupath.ext.py4j.core;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import qupath.lib.objects.PathObject;
+import qupath.lib.objects.PathObjects;
+import qupath.lib.objects.classes.PathClass;
+import qupath.lib.regions.ImagePlane;
+import qupath.lib.roi.ROIs;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class TestColumnarTableWriter {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void Check_Magic_And_Footer_Length() throws IOException {
+        Path file = tempDir.resolve("table.qpcol");
+
+        long length = ColumnarTableWriter.write(createObjects(), List.of("Area"), file, false);
+
+        byte[] bytes = Files.readAllBytes(file);
+        assertEquals(bytes.length, length);
+        assertArrayEquals(ColumnarTableWriter.MAGIC, Arrays.copyOfRange(bytes, 0, ColumnarTableWriter.MAGIC.length));
+        assertArrayEquals(ColumnarTableWriter.MAGIC, Arrays.copyOfRange(bytes, bytes.length - ColumnarTableWriter.MAGIC.length, bytes.length));
+
+        JsonObject footer = readFooter(bytes);
+        assertEquals(ColumnarTableWriter.VERSION, footer.get("version").getAsInt());
+        assertEquals(3, footer.get("rowCount").getAsInt());
+        // The footer starts right after the last column
+        int footerLength = ByteBuffer.wrap(bytes, bytes.length - 12, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+        JsonArray columns = footer.getAsJsonArray("columns");
+        JsonObject lastColumn = columns.get(columns.size() - 1).getAsJsonObject();
+        assertEquals(
+                bytes.length - 12 - footerLength,
+                lastColumn.get("offset").getAsLong() + lastColumn.get("length").getAsLong()
+        );
+    }
+
+    @Test
+    void Check_Columns_Are_Aligned() throws IOException {
+        Path file = tempDir.resolve("table.qpcol");
+
+        ColumnarTableWriter.write(createObjects(), List.of("Area", "Perimeter"), file, false);
+
+        JsonArray columns = readFooter(Files.readAllBytes(file)).getAsJsonArray("columns");
+        assertEquals(8, columns.size());
+        for (var column: columns) {
+            long offset = column.getAsJsonObject().get("offset").getAsLong();
+            assertEquals(0, offset % ColumnarTableWriter.ALIGNMENT, "Offset of " + column);
+        }
+    }
+
+    @Test
+    void Check_Column_Values() throws IOException {
+        List<PathObject> pathObjects = createObjects();
+        Path file = tempDir.resolve("table.qpcol");
+
+        ColumnarTableWriter.write(pathObjects, List.of("Area"), file, false);
+
+        byte[] bytes = Files.readAllBytes(file);
+        JsonArray columns = readFooter(bytes).getAsJsonArray("columns");
+
+        JsonObject ids = findColumn(columns, "Object ID");
+        assertEquals("uuid", ids.get("type").getAsString());
+        ByteBuffer idBuffer = readColumn(bytes, ids).order(ByteOrder.BIG_ENDIAN);
+        for (PathObject pathObject: pathObjects) {
+            assertEquals(pathObject.getID(), new UUID(idBuffer.getLong(), idBuffer.getLong()));
+        }
+
+        JsonObject classifications = findColumn(columns, "Classification");
+        assertEquals("dictionary", classifications.get("type").getAsString());
+        assertEquals("<i4", classifications.get("dtype").getAsString());
+        JsonArray dictionary = classifications.getAsJsonArray("dictionary");
+        assertEquals(1, dictionary.size());
+        assertEquals("Tumor", dictionary.get(0).getAsString());
+        ByteBuffer indices = readColumn(bytes, classifications);
+        assertEquals(0, indices.getInt());
+        assertEquals(0, indices.getInt());
+        assertEquals(-1, indices.getInt());
+
+        JsonObject centroidX = findColumn(columns, "Centroid X");
+        assertEquals("<f8", centroidX.get("dtype").getAsString());
+        ByteBuffer centroids = readColumn(bytes, centroidX);
+        assertEquals(5.0, centroids.getDouble());
+        assertEquals(25.0, centroids.getDouble());
+        assertEquals(45.0, centroids.getDouble());
+
+        ByteBuffer areas = readColumn(bytes, findColumn(columns, "Area"));
+        assertEquals(1.0, areas.getDouble());
+        assertEquals(2.0, areas.getDouble());
+        assertEquals(Double.NaN, areas.getDouble());
+    }
+
+    @Test
+    void Check_Compressed_Columns_Round_Trip() throws IOException, DataFormatException {
+        List<PathObject> pathObjects = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            pathObjects.addAll(createObjects());
+        }
+        Path file = tempDir.resolve("table.qpcol");
+
+        ColumnarTableWriter.write(pathObjects, List.of(), file, true);
+
+        byte[] bytes = Files.readAllBytes(file);
+        JsonObject types = findColumn(readFooter(bytes).getAsJsonArray("columns"), "Object type");
+        assertEquals("deflate", types.get("compression").getAsString());
+        ByteBuffer indices = ByteBuffer.wrap(inflate(readColumnBytes(bytes, types))).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(pathObjects.size() * Integer.BYTES, indices.remaining());
+        while (indices.hasRemaining()) {
+            assertEquals(0, indices.getInt());
+        }
+    }
+
+    @Test
+    void Check_Uncompressed_Columns_When_Compression_Is_Disabled() throws IOException {
+        Path file = tempDir.resolve("table.qpcol");
+
+        ColumnarTableWriter.write(createObjects(), List.of("Area"), file, false);
+
+        for (var column: readFooter(Files.readAllBytes(file)).getAsJsonArray("columns")) {
+            assertEquals("none", column.getAsJsonObject().get("compression").getAsString());
+        }
+    }
+
+    @Test
+    void Check_Empty_Table() throws IOException {
+        Path file = tempDir.resolve("table.qpcol");
+
+        ColumnarTableWriter.write(List.of(), List.of("Area"), file, true);
+
+        JsonObject footer = readFooter(Files.readAllBytes(file));
+        assertEquals(0, footer.get("rowCount").getAsInt());
+        for (var column: footer.getAsJsonArray("columns")) {
+            assertEquals(0, column.getAsJsonObject().get("length").getAsInt());
+        }
+        assertFalse(footer.getAsJsonArray("columns").isEmpty());
+    }
+
+    private static List<PathObject> createObjects() {
+        PathObject first = PathObjects.createDetectionObject(
+                ROIs.createRectangleROI(0, 0, 10, 10, ImagePlane.getDefaultPlane()),
+                PathClass.fromString("Tumor")
+        );
+        first.getMeasurementList().put("Area", 1.0);
+        PathObject second = PathObjects.createDetectionObject(
+                ROIs.createRectangleROI(20, 0, 10, 10, ImagePlane.getDefaultPlane()),
+                PathClass.fromString("Tumor")
+        );
+        second.getMeasurementList().put("Area", 2.0);
+        PathObject third = PathObjects.createDetectionObject(
+                ROIs.createRectangleROI(40, 0, 10, 10, ImagePlane.getDefaultPlane())
+        );
+        return List.of(first, second, third);
+    }
+
+    private static JsonObject readFooter(byte[] bytes) {
+        int footerLength = ByteBuffer.wrap(bytes, bytes.length - 12, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+        String footer = new String(bytes, bytes.length - 12 - footerLength, footerLength, StandardCharsets.UTF_8);
+        return JsonParser.parseString(footer).getAsJsonObject();
+    }
+
+    private static JsonObject findColumn(JsonArray columns, String name) {
+        for (var column: columns) {
+            if (column.getAsJsonObject().get("name").getAsString().equals(name)) {
+                return column.getAsJsonObject();
+            }
+        }
+        throw new AssertionError("Column " + name + " not found");
+    }
+
+    private static byte[] readColumnBytes(byte[] bytes, JsonObject column) {
+        int offset = column.get("offset").getAsInt();
+        return Arrays.copyOfRange(bytes, offset, offset + column.get("length").getAsInt());
+    }
+
+    private static ByteBuffer readColumn(byte[] bytes, JsonObject column) {
+        assertEquals("none", column.get("compression").getAsString());
+        return ByteBuffer.wrap(readColumnBytes(bytes, column)).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static byte[] inflate(byte[] bytes) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        inflater.setInput(bytes);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        while (!inflater.finished()) {
+            int n = inflater.inflate(buffer);
+            if (n == 0 && inflater.needsInput()) {
+                throw new AssertionError("Truncated compressed column");
+            }
+            outputStream.write(buffer, 0, n);
+        }
+        inflater.end();
+        return outputStream.toByteArray();
+    }
+}
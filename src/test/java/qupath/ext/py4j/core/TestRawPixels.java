@@ -0,0 +1,160 @@
+package qupath.ext.py4j.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BandedSampleModel;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TestRawPixels {
+
+    @Test
+    void Check_Header_Fields() {
+        BufferedImage image = new BufferedImage(5, 3, BufferedImage.TYPE_BYTE_GRAY);
+
+        ByteBuffer buffer = ByteBuffer.wrap(RawPixels.toBytes(image, true)).order(ByteOrder.LITTLE_ENDIAN);
+
+        assertEquals(RawPixels.MAGIC, buffer.getInt());
+        assertEquals(1, buffer.getInt());
+        assertEquals(5, buffer.getInt());
+        assertEquals(3, buffer.getInt());
+        assertEquals(1, buffer.getInt());
+        assertEquals(RawPixels.DataType.UINT8.getCode(), buffer.getInt());
+        assertEquals(1, buffer.getInt());
+        assertEquals(0, buffer.getInt());
+        assertEquals(RawPixels.HEADER_SIZE, buffer.position());
+    }
+
+    @Test
+    void Check_Magic_Is_QPRW_In_Ascii() {
+        byte[] bytes = RawPixels.toBytes(new BufferedImage(1, 1, BufferedImage.TYPE_BYTE_GRAY), true);
+
+        assertEquals("QPRW", new String(bytes, 0, 4, StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void Check_Byte_Length_Matches_Written_Bytes() {
+        BufferedImage image = new BufferedImage(7, 4, BufferedImage.TYPE_USHORT_GRAY);
+
+        assertEquals(RawPixels.getByteLength(image), RawPixels.toBytes(image, false).length);
+    }
+
+    @Test
+    void Check_Uint16_Pixels_Are_Little_Endian_And_Unsigned() {
+        BufferedImage image = new BufferedImage(2, 1, BufferedImage.TYPE_USHORT_GRAY);
+        image.getRaster().setSample(0, 0, 0, 65535);
+        image.getRaster().setSample(1, 0, 0, 258);
+
+        byte[] bytes = RawPixels.toBytes(image, true);
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(RawPixels.DataType.UINT16.getCode(), buffer.getInt(20));
+        assertEquals(65535, Short.toUnsignedInt(buffer.getShort(RawPixels.HEADER_SIZE)));
+        // 258 = 0x0102, so the low byte comes first
+        assertEquals(2, bytes[RawPixels.HEADER_SIZE + 2]);
+        assertEquals(1, bytes[RawPixels.HEADER_SIZE + 3]);
+    }
+
+    @Test
+    void Check_Int16_Pixels_Keep_Their_Sign() {
+        BufferedImage image = createImage(DataBuffer.TYPE_SHORT, 2, 1);
+        image.getRaster().setSample(0, 0, 0, -5);
+        image.getRaster().setSample(1, 0, 0, 300);
+
+        ByteBuffer buffer = ByteBuffer.wrap(RawPixels.toBytes(image, true)).order(ByteOrder.LITTLE_ENDIAN);
+
+        assertEquals(RawPixels.DataType.INT16.getCode(), buffer.getInt(20));
+        assertEquals(-5, buffer.getShort(RawPixels.HEADER_SIZE));
+        assertEquals(300, buffer.getShort(RawPixels.HEADER_SIZE + 2));
+    }
+
+    @Test
+    void Check_Float32_Pixels() {
+        BufferedImage image = createImage(DataBuffer.TYPE_FLOAT, 2, 1);
+        image.getRaster().setSample(0, 0, 0, 1.5f);
+        image.getRaster().setSample(1, 0, 0, -0.25f);
+
+        ByteBuffer buffer = ByteBuffer.wrap(RawPixels.toBytes(image, true)).order(ByteOrder.LITTLE_ENDIAN);
+
+        assertEquals(RawPixels.DataType.FLOAT32.getCode(), buffer.getInt(20));
+        assertEquals(1.5f, buffer.getFloat(RawPixels.HEADER_SIZE));
+        assertEquals(-0.25f, buffer.getFloat(RawPixels.HEADER_SIZE + 4));
+    }
+
+    @Test
+    void Check_Packed_RGB_Is_Written_As_Three_Uint8_Channels() {
+        BufferedImage image = new BufferedImage(2, 1, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, 0x102030);
+        image.setRGB(1, 0, 0xA0B0C0);
+
+        byte[] bytes = RawPixels.toBytes(image, true);
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(3, buffer.getInt(16));
+        assertEquals(RawPixels.DataType.UINT8.getCode(), buffer.getInt(20));
+        assertEquals(RawPixels.HEADER_SIZE + 2 * 3, bytes.length);
+        assertUnsignedBytes(
+                new int[] {0x10, 0x20, 0x30, 0xA0, 0xB0, 0xC0},
+                bytes,
+                RawPixels.HEADER_SIZE
+        );
+    }
+
+    @Test
+    void Check_Packed_RGB_Planar_Layout() {
+        BufferedImage image = new BufferedImage(2, 1, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, 0x102030);
+        image.setRGB(1, 0, 0xA0B0C0);
+
+        byte[] bytes = RawPixels.toBytes(image, false);
+
+        assertEquals(0, ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).getInt(24));
+        assertUnsignedBytes(
+                new int[] {0x10, 0xA0, 0x20, 0xB0, 0x30, 0xC0},
+                bytes,
+                RawPixels.HEADER_SIZE
+        );
+    }
+
+    @Test
+    void Check_Write_Starts_At_Buffer_Position() {
+        BufferedImage image = new BufferedImage(3, 2, BufferedImage.TYPE_BYTE_GRAY);
+        image.getRaster().setSample(2, 1, 0, 42);
+        ByteBuffer buffer = ByteBuffer.allocate(10 + (int) RawPixels.getByteLength(image));
+        buffer.position(10);
+
+        RawPixels.write(image, true, buffer);
+
+        assertEquals(buffer.capacity(), buffer.position());
+        assertEquals(RawPixels.MAGIC, buffer.order(ByteOrder.LITTLE_ENDIAN).getInt(10));
+        assertEquals(42, buffer.get(buffer.capacity() - 1));
+    }
+
+    private static BufferedImage createImage(int dataType, int width, int height) {
+        WritableRaster raster = Raster.createWritableRaster(new BandedSampleModel(dataType, width, height, 1), null);
+        ComponentColorModel colorModel = new ComponentColorModel(
+                ColorSpace.getInstance(ColorSpace.CS_GRAY),
+                false,
+                false,
+                Transparency.OPAQUE,
+                dataType
+        );
+        return new BufferedImage(colorModel, raster, false, null);
+    }
+
+    private static void assertUnsignedBytes(int[] expectedUnsignedBytes, byte[] bytes, int offset) {
+        for (int i = 0; i < expectedUnsignedBytes.length; i++) {
+            assertEquals(expectedUnsignedBytes[i], Byte.toUnsignedInt(bytes[offset + i]), "Byte " + i);
+        }
+    }
+}
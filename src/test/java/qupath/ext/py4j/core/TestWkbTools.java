@@ -0,0 +1,130 @@
+package qupath.ext.py4j.core;
+
+import org.junit.jupiter.api.Test;
+import qupath.lib.regions.ImagePlane;
+import qupath.lib.roi.ROIs;
+import qupath.lib.roi.interfaces.ROI;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestWkbTools {
+
+    private static final ImagePlane PLANE = ImagePlane.getPlane(1, 2);
+
+    @Test
+    void Check_Single_Geometry_Round_Trip() {
+        ROI roi = ROIs.createRectangleROI(10, 20, 30, 40, ImagePlane.getDefaultPlane());
+
+        ROI result = WkbTools.toROI(WkbTools.toWkb(roi), PLANE);
+
+        assertTrue(roi.getGeometry().equalsTopo(result.getGeometry()));
+        assertEquals(PLANE, result.getImagePlane());
+    }
+
+    @Test
+    void Check_Single_Geometry_Is_Little_Endian() {
+        byte[] wkb = WkbTools.toWkb(ROIs.createRectangleROI(0, 0, 1, 1, ImagePlane.getDefaultPlane()));
+
+        // The first byte of a WKB geometry is 1 for little-endian, followed by the geometry type (3 for a polygon)
+        assertEquals(1, wkb[0]);
+        assertEquals(3, ByteBuffer.wrap(wkb, 1, 4).order(ByteOrder.LITTLE_ENDIAN).getInt());
+    }
+
+    @Test
+    void Check_Packed_Header_Fields() {
+        List<ROI> rois = List.of(
+                ROIs.createRectangleROI(0, 0, 5, 5, ImagePlane.getDefaultPlane()),
+                ROIs.createEllipseROI(10, 10, 20, 10, ImagePlane.getDefaultPlane())
+        );
+
+        ByteBuffer buffer = ByteBuffer.wrap(WkbTools.toPackedWkb(rois)).order(ByteOrder.LITTLE_ENDIAN);
+
+        assertEquals(2, buffer.getInt());
+        for (ROI roi: rois) {
+            int length = buffer.getInt();
+            assertEquals(WkbTools.toWkb(roi).length, length);
+            buffer.position(buffer.position() + length);
+        }
+        assertEquals(0, buffer.remaining());
+    }
+
+    @Test
+    void Check_Packed_Geometries_Round_Trip() {
+        List<ROI> rois = List.of(
+                ROIs.createRectangleROI(0, 0, 5, 5, ImagePlane.getDefaultPlane()),
+                ROIs.createEllipseROI(10, 10, 20, 10, ImagePlane.getDefaultPlane()),
+                ROIs.createLineROI(0, 0, 100, 50, ImagePlane.getDefaultPlane())
+        );
+
+        List<ROI> results = WkbTools.toROIs(WkbTools.toPackedWkb(rois), PLANE);
+
+        assertEquals(rois.size(), results.size());
+        for (int i = 0; i < rois.size(); i++) {
+            assertTrue(rois.get(i).getGeometry().equalsTopo(results.get(i).getGeometry()), "Geometry " + i);
+            assertEquals(PLANE, results.get(i).getImagePlane());
+        }
+    }
+
+    @Test
+    void Check_Empty_Packed_Geometries() {
+        byte[] packedWkb = WkbTools.toPackedWkb(List.of());
+
+        assertEquals(Integer.BYTES, packedWkb.length);
+        assertEquals(List.of(), WkbTools.toROIs(packedWkb, PLANE));
+    }
+
+    @Test
+    void Check_Missing_Geometry_Is_Written_With_Zero_Length() {
+        List<ROI> rois = Arrays.asList(null, ROIs.createRectangleROI(0, 0, 5, 5, ImagePlane.getDefaultPlane()));
+
+        byte[] packedWkb = WkbTools.toPackedWkb(rois);
+
+        ByteBuffer buffer = ByteBuffer.wrap(packedWkb).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(2, buffer.getInt());
+        assertEquals(0, buffer.getInt());
+        assertThrows(IllegalArgumentException.class, () -> WkbTools.toROIs(packedWkb, PLANE));
+    }
+
+    @Test
+    void Check_Truncated_Packed_Geometries() {
+        byte[] packedWkb = WkbTools.toPackedWkb(List.of(ROIs.createRectangleROI(0, 0, 5, 5, ImagePlane.getDefaultPlane())));
+
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> WkbTools.toROIs(Arrays.copyOf(packedWkb, packedWkb.length - 1), PLANE)
+        );
+        assertThrows(IllegalArgumentException.class, () -> WkbTools.toROIs(new byte[2], PLANE));
+    }
+
+    @Test
+    void Check_Invalid_Number_Of_Geometries() {
+        byte[] negative = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putInt(-1).array();
+        byte[] tooLarge = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putInt(Integer.MAX_VALUE).array();
+
+        assertThrows(IllegalArgumentException.class, () -> WkbTools.toROIs(negative, PLANE));
+        assertThrows(IllegalArgumentException.class, () -> WkbTools.toROIs(tooLarge, PLANE));
+    }
+
+    @Test
+    void Check_Invalid_Geometry_Length() {
+        byte[] packedWkb = ByteBuffer.allocate(12)
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(1)
+                .putInt(1000)
+                .array();
+
+        assertThrows(IllegalArgumentException.class, () -> WkbTools.toROIs(packedWkb, PLANE));
+    }
+
+    @Test
+    void Check_Invalid_Wkb() {
+        assertThrows(IllegalArgumentException.class, () -> WkbTools.toROI(new byte[] {1, 42, 0, 0, 0}, PLANE));
+    }
+}